@@ -16,5 +16,17 @@ public interface Actor {
      * @return True if the Actor is alive, False if the Actor is dead
      */
     public abstract boolean isAlive(); 
+
+    /**
+     * The location of the actor in the field
+     * @return The location, null if the actor is not in the field
+     */
+    public abstract Location getLocation();
+
+    /**
+     * The id of the actor, the engine uses it to key the random numbers the actor draws
+     * @return The id
+     */
+    public abstract long getId();
    
 }
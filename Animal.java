@@ -8,11 +8,20 @@ import java.util.List;
  */
 public abstract class Animal extends FieldSprite implements Actor
 {
-    // Whether the animal is alive or not.
-    private boolean alive;
+    // The store that holds the state of the animal.
+    protected AnimalStore store;
+    // The slot of the animal in the store. An animal keeps its slot when it is recycled.
+    protected int slot;
+    // The free positions found for a litter, one buffer per thread, grown to the largest litter.
+    private static final ThreadLocal<Location[]> litters = new ThreadLocal<Location[]>() {
+        protected Location[] initialValue() {
+            return new Location[0];
+        }
+    };
     
     /**
      * Create a new animal at location in field.
+     * The animal takes a slot in the store the field keeps for its species.
      * 
      * @param field The field currently occupied.
      * @param location The location within the field.
@@ -20,9 +29,27 @@ public abstract class Animal extends FieldSprite implements Actor
     public Animal(Field field, Location location)
     {
         super(field, location);
-        alive = true;
+        store = field.getStore(getSpecies());
+        slot = store.allocate(this);
+        store.setPosition(slot, location);
     }
     
+    /**
+     * Get the buffer of the calling thread to find the positions of a litter in.
+     * The next litter on the same thread overwrites it, so use the positions right away.
+     * @param births The number of young in the litter
+     * @return A buffer of at least births locations
+     */
+    protected static Location[] litterBuffer(int births)
+    {
+        Location[] buffer = litters.get();
+        if(buffer.length < births) {
+            buffer = new Location[births];
+            litters.set(buffer);
+        }
+        return buffer;
+    }
+
     /**
      * Make this animal act - that is: make it do
      * whatever it wants/needs to do.
@@ -36,7 +63,7 @@ public abstract class Animal extends FieldSprite implements Actor
      */
     public boolean isAlive()
     {
-        return alive;
+        return store.hasFlag(slot, AnimalStore.ALIVE);
     }
 
     /**
@@ -45,14 +72,99 @@ public abstract class Animal extends FieldSprite implements Actor
      */
     public void setDead()
     {
-        alive = false;
+        store.setFlag(slot, AnimalStore.ALIVE, false);
         if(location != null) {
             field.clear(location);
             location = null;
             field = null;
+            store.setPosition(slot, null);
+        }
+    }
+
+    /**
+     * @return The age of the animal.
+     */
+    public int getAge()
+    {
+        return store.getAge(slot);
+    }
+
+    /**
+     * @return The food level of the animal.
+     */
+    public int getFoodLevel()
+    {
+        return store.getFood(slot);
+    }
+
+    /**
+     * @return The flags of the animal, see AnimalStore.
+     */
+    public int getFlags()
+    {
+        return store.getFlags(slot);
+    }
+
+    /**
+     * Set the state of the animal to what it was when a checkpoint was written.
+     * @param age The age
+     * @param food The food level
+     * @param flags The flags, see AnimalStore
+     */
+    public void restoreState(int age, int food, int flags)
+    {
+        store.setAge(slot, age);
+        store.setFood(slot, food);
+        store.setFlags(slot, flags);
+        if(location != null) {
+            field.setMarked(location, mark());
+        }
+    }
+
+    /**
+     * Give a dead animal back to the store, which keeps it to be revived for a later birth.
+     * Nothing else may refer to the animal afterwards.
+     */
+    public void release()
+    {
+        store.release(slot);
+    }
+
+    /**
+     * Move the animal, and keep its position in the store up to date.
+     * @param location The new location
+     */
+    public void setLocation(Location location)
+    {
+        super.setLocation(location);
+        // The store isn't there yet while the sprite constructor places the animal.
+        if(store != null) {
+            store.setPosition(slot, location);
         }
     }
     
+    /**
+     * Eat the animal at the given position if this species eats it, as told by the
+     * food values in the parameters of the species. Only the species code of the position is looked at
+     * until there is something to eat.
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return True if an animal was eaten
+     */
+    protected boolean eat(int row, int col)
+    {
+        int food = store.getParameters().getFoodValue(field.getSpeciesAt(row, col));
+        if(food > 0) {
+            Animal prey = (Animal) field.getSpriteAt(row, col);
+            if(prey.isAlive()) {
+                prey.setDead();
+                store.setFood(slot, food);
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Return the animal's field.
      * @return The animal's field.
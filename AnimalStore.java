@@ -0,0 +1,330 @@
+import java.util.Arrays;
+
+/**
+ * The state of all animals of one species on a field, kept in parallel primitive arrays.
+ * Every animal owns one slot; an Animal object is only a view on its slot. The state of
+ * neighbouring slots lies next to each other in memory, so the sweep that ages all animals
+ * of a species runs over a few int arrays instead of chasing an object per animal.
+ *
+ * The store is also the pool of its species: a dead animal keeps its slot and is revived
+ * for a later birth, so births and resets don't allocate once the store has grown.
+ *
+ * The store also holds the parameters of its species for the run, see SimulationConfig.
+ *
+ * The arrays are split in pages of a fixed size. Growing the store only adds pages, a slot
+ * never moves, so threads that work on slots of their own don't lose writes when another
+ * thread takes a new slot at the same time. The arrays of pages are kept together in a
+ * Directory that is replaced, never changed, when a page is added, and is published through
+ * a volatile field, so a thread that reads without a lock sees either the old directory or
+ * the new one, with all of its pages.
+ */
+public class AnimalStore {
+    // Flag that is set while the animal in a slot is alive.
+    public static final int ALIVE = 1;
+    // Flag for a rabbit that carries the myxomatosis gene.
+    public static final int GENE = 2;
+    // Flag for a rabbit that is infected with myxomatosis.
+    public static final int INFECTED = 4;
+
+    // The number of slots in one page, a power of two.
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // The width of the field, positions are packed as row * width + col.
+    private final int width;
+    // The parameters of the species, only replaced between two steps.
+    private SpeciesParameters parameters;
+    // The pages of the store.
+    private volatile Directory directory;
+    // The number of slots that have ever been handed out. Slots are never taken back.
+    private int size;
+    // Slots of dead animals that can be revived, used as a stack.
+    private int[] freeSlots;
+    private int freeTop;
+
+    /**
+     * Create an empty store for a field of the given width.
+     * @param width The width of the field
+     * @param parameters The parameters of the species
+     */
+    public AnimalStore(int width, SpeciesParameters parameters){
+        this.width = width;
+        this.parameters = parameters;
+        directory = new Directory(0);
+        freeSlots = new int[16];
+    }
+
+    /**
+     * Take all animals off the store. Their objects and slots are kept, to be revived
+     * by the next population, so a reset doesn't throw the animals away.
+     */
+    public synchronized void clear(){
+        if(freeSlots.length < size) {
+            freeSlots = new int[size];
+        }
+        // Push the slots in reverse, so they are handed out again from the first one on.
+        freeTop = 0;
+        int[][] flags = directory.flags;
+        for(int slot = size - 1; slot >= 0; slot--) {
+            flags[slot >> PAGE_SHIFT][slot & PAGE_MASK] = 0;
+            freeSlots[freeTop++] = slot;
+        }
+    }
+
+    /**
+     * Hand out a new slot for a new, living animal.
+     * @param view The animal that will own the slot
+     * @return The slot
+     */
+    public synchronized int allocate(Animal view){
+        int slot = size++;
+        if((slot >> PAGE_SHIFT) == directory.views.length) {
+            addPage();
+        }
+        directory.views[slot >> PAGE_SHIFT][slot & PAGE_MASK] = view;
+        resetSlot(slot);
+        return slot;
+    }
+
+    /**
+     * Take a dead animal out of the store to be revived as a new born, with its slot reset.
+     * The caller must revive it before the animal is used.
+     * @return A dead animal of this species, or null if there is none to recycle
+     */
+    public synchronized Animal reuse(){
+        if(freeTop == 0) {
+            return null;
+        }
+        int slot = freeSlots[--freeTop];
+        resetSlot(slot);
+        return directory.views[slot >> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /**
+     * Give the slot of a dead animal back. The animal stays with its slot and is handed out
+     * again by reuse. Only animals that nothing refers to anymore may be released.
+     * @param slot The slot
+     */
+    public synchronized void release(int slot){
+        directory.flags[slot >> PAGE_SHIFT][slot & PAGE_MASK] = 0;
+        if(freeTop == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeTop * 2);
+        }
+        freeSlots[freeTop++] = slot;
+    }
+
+    /**
+     * Set a slot to the state of a living new born that isn't on the field yet.
+     * @param slot The slot
+     */
+    private void resetSlot(int slot){
+        Directory directory = this.directory;
+        int page = slot >> PAGE_SHIFT;
+        int index = slot & PAGE_MASK;
+        directory.ages[page][index] = 0;
+        directory.foods[page][index] = 0;
+        directory.flags[page][index] = ALIVE;
+        directory.positions[page][index] = -1;
+    }
+
+    /**
+     * Add one page to every array. Only the arrays of pages are copied, the pages themselves stay.
+     * The new directory is published when it is complete.
+     */
+    private void addPage(){
+        directory = new Directory(directory);
+    }
+
+    /**
+     * Make every living animal one step older, and hungrier if it eats. Animals that get too
+     * old or starve are taken off the field. Must not run while the field is updated in parallel.
+     */
+    public void growOlder(){
+        int maxAge = parameters.getMaxAge();
+        boolean hungry = parameters.isHungry();
+        Directory directory = this.directory;
+        int pages = (size + PAGE_MASK) >> PAGE_SHIFT;
+        for(int page = 0; page < pages; page++) {
+            int[] age = directory.ages[page];
+            int[] food = directory.foods[page];
+            int[] flag = directory.flags[page];
+            int end = Math.min(PAGE_SIZE, size - (page << PAGE_SHIFT));
+            for(int index = 0; index < end; index++) {
+                if((flag[index] & ALIVE) != 0) {
+                    age[index]++;
+                    boolean dies = age[index] > maxAge;
+                    if(hungry) {
+                        food[index]--;
+                        dies |= food[index] <= 0;
+                    }
+                    if(dies) {
+                        directory.views[page][index].setDead();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The parameters of the species.
+     */
+    public SpeciesParameters getParameters(){
+        return parameters;
+    }
+
+    /**
+     * Replace the parameters of the species. Must be called between two steps.
+     * @param parameters The new parameters
+     */
+    public void setParameters(SpeciesParameters parameters){
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return The number of living animals in the store.
+     */
+    public synchronized int getLiveCount(){
+        int live = 0;
+        for(int[] page : directory.flags){
+            for(int flag : page){
+                live += flag & ALIVE;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @param slot The slot
+     * @return The age of the animal in the slot
+     */
+    public int getAge(int slot){
+        return directory.ages[slot >> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /**
+     * @param slot The slot
+     * @param age The new age of the animal in the slot
+     */
+    public void setAge(int slot, int age){
+        directory.ages[slot >> PAGE_SHIFT][slot & PAGE_MASK] = age;
+    }
+
+    /**
+     * @param slot The slot
+     * @return The food level of the animal in the slot
+     */
+    public int getFood(int slot){
+        return directory.foods[slot >> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /**
+     * @param slot The slot
+     * @param food The new food level of the animal in the slot
+     */
+    public void setFood(int slot, int food){
+        directory.foods[slot >> PAGE_SHIFT][slot & PAGE_MASK] = food;
+    }
+
+    /**
+     * @param slot The slot
+     * @return All flags of the slot
+     */
+    public int getFlags(int slot){
+        return directory.flags[slot >> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /**
+     * @param slot The slot
+     * @param value The new flags of the slot
+     */
+    public void setFlags(int slot, int value){
+        directory.flags[slot >> PAGE_SHIFT][slot & PAGE_MASK] = value;
+    }
+
+    /**
+     * Check a flag of a slot.
+     * @param slot The slot
+     * @param flag One of ALIVE, GENE or INFECTED
+     * @return True if the flag is set
+     */
+    public boolean hasFlag(int slot, int flag){
+        return (directory.flags[slot >> PAGE_SHIFT][slot & PAGE_MASK] & flag) != 0;
+    }
+
+    /**
+     * Set or clear a flag of a slot.
+     * @param slot The slot
+     * @param flag One of ALIVE, GENE or INFECTED
+     * @param value True to set the flag, false to clear it
+     */
+    public void setFlag(int slot, int flag, boolean value){
+        int[] page = directory.flags[slot >> PAGE_SHIFT];
+        if(value) {
+            page[slot & PAGE_MASK] |= flag;
+        }
+        else {
+            page[slot & PAGE_MASK] &= ~flag;
+        }
+    }
+
+    /**
+     * @param slot The slot
+     * @return The packed position of the animal, row * width + col, or -1 if it isn't on the field
+     */
+    public long getPosition(int slot){
+        return directory.positions[slot >> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /**
+     * @param slot The slot
+     * @param location The new location of the animal, null if it left the field
+     */
+    public void setPosition(int slot, Location location){
+        directory.positions[slot >> PAGE_SHIFT][slot & PAGE_MASK] =
+            location == null ? -1 : (long) location.getRow() * width + location.getCol();
+    }
+
+    /**
+     * The arrays of pages of a store. A directory is filled before it is published and
+     * never changed afterwards; only the pages it points to are.
+     */
+    private static class Directory {
+        // The age, food level, flags and packed position of every slot, page by page.
+        final int[][] ages, foods, flags;
+        final long[][] positions;
+        // The animal of every slot. Used by the sweeps to take dead animals off the field, and
+        // kept after the animal died so that it can be revived for a later birth.
+        final Animal[][] views;
+
+        /**
+         * Create a directory of empty pages.
+         * @param pages The number of pages
+         */
+        Directory(int pages){
+            ages = new int[pages][];
+            foods = new int[pages][];
+            flags = new int[pages][];
+            positions = new long[pages][];
+            views = new Animal[pages][];
+        }
+
+        /**
+         * Create a directory with the pages of another one and one new page.
+         * @param other The directory to extend
+         */
+        Directory(Directory other){
+            int pages = other.views.length + 1;
+            ages = Arrays.copyOf(other.ages, pages);
+            foods = Arrays.copyOf(other.foods, pages);
+            flags = Arrays.copyOf(other.flags, pages);
+            positions = Arrays.copyOf(other.positions, pages);
+            views = Arrays.copyOf(other.views, pages);
+            ages[pages - 1] = new int[PAGE_SIZE];
+            foods[pages - 1] = new int[PAGE_SIZE];
+            flags[pages - 1] = new int[PAGE_SIZE];
+            positions[pages - 1] = new long[PAGE_SIZE];
+            views[pages - 1] = new Animal[PAGE_SIZE];
+        }
+    }
+}
@@ -1,7 +1,6 @@
 import java.util.List;
 import java.util.Iterator;
 import java.util.Random;
-import java.awt.*;
 
 /**
  * A simple model of a bear.
@@ -10,32 +9,27 @@ import java.awt.*;
  * @author David J. Barnes and Michael Kolling
  * @version 2008.03.30
  */
-public class Bear extends Animal
+public class Bear extends Animal implements NeighbourVisitor
 {
-    // Characteristics shared by all bears(static fields).
+    // The default characteristics of bears, a run reads its own from its SimulationConfig.
     
     // The age at which a bear can start to breed.
-	public static  int BREEDING_AGE = 200;
+	public static final int BREEDING_AGE = 200;
     // The age to which a bear can live.
-	public static  int MAX_AGE = 1000;
+	public static final int MAX_AGE = 1000;
     // The likelihood of a bear breeding.
-	public static  double BREEDING_PROBABILITY = 0.005;
+	public static final double BREEDING_PROBABILITY = 0.005;
     // The maximum number of births.
-	public static  int MAX_LITTER_SIZE = 2;
+	public static final int MAX_LITTER_SIZE = 2;
     // The food value of a single rabbit. In effect, this is the
     // number of steps a bear can go before it has to eat again.
-	public static  int RABBIT_FOOD_VALUE = 40;
+	public static final int RABBIT_FOOD_VALUE = 40;
 	// The food value of a single fox. In effect, this is the
     // number of steps a bear can go before it has to eat again.
-	public static  int FOX_FOOD_VALUE = 80;
-    // A shared random number generator to control breeding.
-    private static final Random rand = Randomizer.getRandom();
+	public static final int FOX_FOOD_VALUE = 80;
     
-    // Individual characteristics (instance fields).
-    // The bear's age.
-    private int age;
-    // The bear's food level, which is increased by eating rabbits.
-    private int foodLevel;
+    // Individual characteristics (age and food level) are kept in the AnimalStore,
+    // together with the parameters of the run.
 
     /**
      * Create a bear. A bear can be created as a new born (age zero
@@ -48,27 +42,54 @@ public class Bear extends Animal
     public Bear(boolean randomAge, Field field, Location location)
     {
         super(field, location);
-        markColor = Color.red;
+        initState(randomAge);
+    }
+
+    /**
+     * Create a bear, reviving a dead one of the same field when there is one.
+     * 
+     * @param randomAge If true, the bear will have a random age.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     * @return The new bear.
+     */
+    public static Bear create(boolean randomAge, Field field, Location location)
+    {
+        Bear bear = (Bear) field.getStore(Species.BEAR).reuse();
+        if(bear == null) {
+            return new Bear(randomAge, field, location);
+        }
+        bear.init(field, location);
+        bear.initState(randomAge);
+        return bear;
+    }
+
+    /**
+     * Set the state of a bear that was just put on the field.
+     * @param randomAge If true, the bear will have a random age.
+     */
+    private void initState(boolean randomAge)
+    {
+        Random rand = Randomizer.getRandom();
+        SpeciesParameters parameters = store.getParameters();
+        int rabbitFoodValue = parameters.getFoodValue(Species.RABBIT);
         if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
-            foodLevel = rand.nextInt(RABBIT_FOOD_VALUE);
+            store.setAge(slot, rand.nextInt(parameters.getMaxAge()));
+            store.setFood(slot, rand.nextInt(rabbitFoodValue));
         }
         else {
-            age = 0;
-            foodLevel = RABBIT_FOOD_VALUE;
+            store.setFood(slot, rabbitFoodValue);
         }
     }
     
     /**
      * This is what the bear does most of the time: it hunts for
-     * rabbits and foxes. In the process, it might breed, die of hunger,
-     * or die of old age.
+     * rabbits and foxes. In the process, it might breed. Aging and
+     * hunger are applied to all bears at once, see AnimalStore.growOlder.
      * @param newBears A list to add newly born foxes to.
      */
     public void act(List<Animal> newBears)
     {
-        incrementAge();
-        incrementHunger();
         if(isAlive()) {
             giveBirth(newBears);
             // Move towards a source of food if found.
@@ -89,28 +110,6 @@ public class Bear extends Animal
         }
     }
 
-    /**
-     * Increase the age. This could result in the bear's death.
-     */
-    private void incrementAge()
-    {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
-        }
-    }
-    
-    /**
-     * Make this bear more hungry. This could result in the bear's death.
-     */
-    private void incrementHunger()
-    {
-        foodLevel--;
-        if(foodLevel <= 0) {
-            setDead();
-        }
-    }
-    
     /**
      * Tell the bear to look for rabbits and foxes adjacent to its current location.
      * Only the first live rabbit or fox is eaten.
@@ -119,20 +118,18 @@ public class Bear extends Animal
      */
     private Location findFood(Location location)
     {
-        Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation(),1);
-        for (Location anAdjacent : adjacent) {
-            FieldSprite sprite = field.getSpriteAt(anAdjacent);
-            if (sprite instanceof Animal) {
-                Animal animal = (Animal) sprite;
-                if (animal.isAlive()) {
-                    animal.setDead();
-                    foodLevel = sprite instanceof Rabbit ? RABBIT_FOOD_VALUE : FOX_FOOD_VALUE;
-                    return anAdjacent;
-                }
-            }
-        }
-        return null;
+        return getField().visitAdjacent(location.getRow(), location.getCol(), 1, this);
+    }
+
+    /**
+     * Eat the animal at the visited position, if there is a live one.
+     * @param row The row of the visited position
+     * @param col The column of the visited position
+     * @return True if an animal was eaten, which ends the search for food.
+     */
+    public boolean visit(int row, int col)
+    {
+        return eat(row, col);
     }
     
     /**
@@ -143,14 +140,16 @@ public class Bear extends Animal
     private void giveBirth(List<Animal> newBears)
     {
         // New bears are born into adjacent locations.
-        // Get a list of adjacent free locations.
-        Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation(),1);
+        // Only look for free locations when there is something to be born.
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Bear young = new Bear(false, field, loc);
-            newBears.add(young);
+        if(births > 0) {
+            Field field = getField();
+            Location[] free = litterBuffer(births);
+            int count = field.freeAdjacentLocations(getLocation(), 1, free, births);
+            for(int b = 0; b < count; b++) {
+                Bear young = Bear.create(false, field, free[b]);
+                newBears.add(young);
+            }
         }
     }
         
@@ -162,8 +161,10 @@ public class Bear extends Animal
     private int breed()
     {
         int births = 0;
-        if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
-            births = rand.nextInt(MAX_LITTER_SIZE) + 1;
+        Random rand = Randomizer.getRandom();
+        SpeciesParameters parameters = store.getParameters();
+        if(canBreed() && rand.nextDouble() <= parameters.getBreedingProbability()) {
+            births = rand.nextInt(parameters.getMaxLitterSize()) + 1;
         }
         return births;
     }
@@ -173,7 +174,14 @@ public class Bear extends Animal
      */
     private boolean canBreed()
     {
-        return age >= BREEDING_AGE;
+        return store.getAge(slot) >= store.getParameters().getBreedingAge();
     }
-}
 
+    /**
+     * @return The species code of a bear.
+     */
+    public int getSpecies()
+    {
+        return Species.BEAR;
+    }
+}
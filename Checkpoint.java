@@ -0,0 +1,269 @@
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the full state of a simulation engine to a compact binary file, and
+ * restores it. A restored engine continues exactly as the original would have:
+ * random numbers are keyed by the seed, the step and the id of an actor (see
+ * CounterRandom), so the seed and step count are all the random state there is,
+ * and the actors are written in the order they act.
+ *
+ * The file holds, big endian: MAGIC, VERSION, the depth and width, the seed and
+ * step count, the parameters of every animal species (breeding age, maximum age,
+ * breeding probability, maximum litter size, gene percentage and one food value
+ * per species code), then one record per actor (species, row,
+ * column, id, age, food level, flags) and finally one record per road (row, column).
+ */
+public class Checkpoint {
+    // The first int of a checkpoint file, "FXCP".
+    public static final int MAGIC = 0x46584350;
+    // The version of the layout.
+    public static final int VERSION = 2;
+    // The size of the buffer data is written and read through.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Checkpoint only has static methods, it can't be instantiated.
+     */
+    private Checkpoint(){
+    }
+
+    /**
+     * Write the state of an engine, between two steps.
+     * @param engine The engine to save
+     * @param file The file to write
+     * @throws IOException If the file can't be written
+     */
+    public static void save(SimulationEngine engine, File file) throws IOException {
+        Field field = engine.getField();
+        List<Actor> all = new ArrayList<Actor>();
+        engine.collectActors(all);
+        // Actors that died since the last step, e.g. under a new road, are left out.
+        List<Actor> actors = new ArrayList<Actor>(all.size());
+        for(Actor actor : all){
+            if(actor.isAlive()){
+                actors.add(actor);
+            }
+        }
+
+        RandomAccessFile access = new RandomAccessFile(file, "rw");
+        try {
+            access.setLength(0);
+            FileChannel channel = access.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION);
+            buffer.putInt(field.getDepth()).putInt(field.getWidth());
+            buffer.putLong(engine.getSeed()).putLong(engine.getStepCount());
+            putParameters(buffer, engine.getConfig());
+
+            buffer.putInt(actors.size());
+            for(Actor actor : actors){
+                if(buffer.remaining() < 32){
+                    drain(buffer, channel);
+                }
+                FieldSprite sprite = (FieldSprite) actor;
+                Location location = sprite.getLocation();
+                buffer.put((byte) sprite.getSpecies());
+                buffer.putInt(location.getRow()).putInt(location.getCol());
+                buffer.putLong(sprite.getId());
+                if(actor instanceof Animal){
+                    Animal animal = (Animal) actor;
+                    buffer.putInt(animal.getAge()).putInt(animal.getFoodLevel()).putInt(animal.getFlags());
+                }
+                else {
+                    buffer.putInt(0).putInt(0).putInt(0);
+                }
+            }
+
+            // Roads are no actors, so they are looked up in the field, unless there are none.
+            List<Location> roads = new ArrayList<Location>();
+            if(field.getCount(Species.ROAD) > 0){
+                for(int row = 0; row < field.getDepth(); row++){
+                    for(int col = 0; col < field.getWidth(); col++){
+                        if(field.getSpeciesAt(row, col) == Species.ROAD){
+                            roads.add(new Location(row, col));
+                        }
+                    }
+                }
+            }
+            if(buffer.remaining() < 4){
+                drain(buffer, channel);
+            }
+            buffer.putInt(roads.size());
+            for(Location road : roads){
+                if(buffer.remaining() < 8){
+                    drain(buffer, channel);
+                }
+                buffer.putInt(road.getRow()).putInt(road.getCol());
+            }
+            drain(buffer, channel);
+            channel.force(false);
+        } finally {
+            access.close();
+        }
+    }
+
+    /**
+     * Replace the state of an engine with the one in a checkpoint. The field of the
+     * engine must have the same dimensions as the one that was saved.
+     * @param engine The engine to restore into
+     * @param file The file to read
+     * @throws IOException If the file can't be read or doesn't fit the engine
+     */
+    public static void restore(SimulationEngine engine, File file) throws IOException {
+        Field field = engine.getField();
+        RandomAccessFile access = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = access.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+            fill(buffer, channel, 8);
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+                throw new IOException(file + " is not a checkpoint of this version");
+            }
+            fill(buffer, channel, 24);
+            int depth = buffer.getInt();
+            int width = buffer.getInt();
+            if(depth != field.getDepth() || width != field.getWidth()){
+                throw new IOException("The checkpoint is of a " + depth + "x" + width + " field, not "
+                        + field.getDepth() + "x" + field.getWidth());
+            }
+            long seed = buffer.getLong();
+            long stepCount = buffer.getLong();
+            engine.setConfig(getParameters(buffer, channel, engine.getConfig()));
+
+            field.clear();
+            fill(buffer, channel, 4);
+            int count = buffer.getInt();
+            List<Actor> actors = new ArrayList<Actor>(count);
+            for(int i = 0; i < count; i++){
+                fill(buffer, channel, 29);
+                int species = buffer.get();
+                Location location = new Location(buffer.getInt(), buffer.getInt());
+                long id = buffer.getLong();
+                int age = buffer.getInt();
+                int food = buffer.getInt();
+                int flags = buffer.getInt();
+                FieldSprite sprite;
+                if(species == Species.RABBIT){
+                    sprite = Rabbit.create(false, field, location);
+                }
+                else if(species == Species.FOX){
+                    sprite = Fox.create(false, field, location);
+                }
+                else if(species == Species.BEAR){
+                    sprite = Bear.create(false, field, location);
+                }
+                else if(species == Species.HUNTER){
+                    sprite = new Hunter(field, location);
+                }
+                else {
+                    throw new IOException("Unknown actor species " + species);
+                }
+                sprite.restoreId(id);
+                if(sprite instanceof Animal){
+                    ((Animal) sprite).restoreState(age, food, flags);
+                }
+                actors.add((Actor) sprite);
+            }
+
+            fill(buffer, channel, 4);
+            int roads = buffer.getInt();
+            for(int i = 0; i < roads; i++){
+                fill(buffer, channel, 8);
+                new Road(field, new Location(buffer.getInt(), buffer.getInt()));
+            }
+            engine.restore(seed, stepCount, actors);
+        } finally {
+            access.close();
+        }
+    }
+
+    /**
+     * Write the parameters of every animal species.
+     * @param buffer The buffer to write to
+     * @param config The configuration of the run
+     */
+    private static void putParameters(ByteBuffer buffer, SimulationConfig config){
+        for(int species = 0; species < Species.COUNT; species++){
+            if(Species.isAnimal(species)){
+                SpeciesParameters parameters = config.getSpecies(species);
+                buffer.putInt(parameters.getBreedingAge()).putInt(parameters.getMaxAge());
+                buffer.putDouble(parameters.getBreedingProbability()).putInt(parameters.getMaxLitterSize());
+                buffer.putInt(parameters.getGenePercentage());
+                for(int prey = 0; prey < Species.COUNT; prey++){
+                    buffer.putInt(parameters.getFoodValue(prey));
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the parameters written by putParameters.
+     * @param buffer The buffer to read from
+     * @param channel The channel to refill the buffer from
+     * @param config The configuration to take everything else from
+     * @return The configuration with the parameters that were read
+     * @throws IOException If the file ends early
+     */
+    private static SimulationConfig getParameters(ByteBuffer buffer, FileChannel channel, SimulationConfig config)
+            throws IOException {
+        for(int species = 0; species < Species.COUNT; species++){
+            if(Species.isAnimal(species)){
+                fill(buffer, channel, 24 + 4 * Species.COUNT);
+                int breedingAge = buffer.getInt();
+                int maxAge = buffer.getInt();
+                double breedingProbability = buffer.getDouble();
+                int maxLitterSize = buffer.getInt();
+                int genePercentage = buffer.getInt();
+                int[] foodValues = new int[Species.COUNT];
+                for(int prey = 0; prey < Species.COUNT; prey++){
+                    foodValues[prey] = buffer.getInt();
+                }
+                config = config.withSpecies(species, new SpeciesParameters(breedingAge, maxAge,
+                        breedingProbability, maxLitterSize, genePercentage, foodValues));
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Write everything in the buffer to the channel and empty the buffer.
+     * @param buffer The buffer, in writing mode
+     * @param channel The channel to write to
+     * @throws IOException If writing fails
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Make sure the buffer holds at least the given number of bytes to read.
+     * @param buffer The buffer, in reading mode
+     * @param channel The channel to read from
+     * @param bytes The number of bytes needed
+     * @throws IOException If the file ends before that
+     */
+    private static void fill(ByteBuffer buffer, FileChannel channel, int bytes) throws IOException {
+        if(buffer.remaining() >= bytes){
+            return;
+        }
+        buffer.compact();
+        while(buffer.position() < bytes){
+            if(channel.read(buffer) < 0){
+                throw new EOFException("The checkpoint ends early");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,242 @@
+import java.util.Arrays;
+
+/**
+ * A field store for very large, mostly empty fields. The field is cut in chunks
+ * of CHUNK_ROWS rows of 64 positions, one word of the occupancy bitset per row. A chunk is only allocated when something
+ * is placed in it, and dropped again as soon as its last position is cleared, so
+ * memory grows with the occupied area instead of the area of the field. Reading
+ * a position in a missing chunk simply finds it empty.
+ *
+ * A chunk only keeps the cells and sprites of its taken positions, in the order of
+ * their occupancy bits, so a chunk with one animal costs about 150 bytes instead of
+ * two full arrays of 512 positions. On a 100000 x 100000 field with 0.01% rabbits
+ * and 0.002% foxes nearly every animal has a chunk of its own, which is what that
+ * saves on.
+ *
+ * A chunk spans several rows and is allocated and dropped while the field changes,
+ * so this store can't be updated by several threads at once.
+ */
+public class ChunkedFieldStore implements FieldStore {
+    // The number of rows in a chunk. Kept small, so a lone animal doesn't cost much.
+    private static final int ROW_SHIFT = 3;
+    private static final int CHUNK_ROWS = 1 << ROW_SHIFT;
+    private static final int ROW_MASK = CHUNK_ROWS - 1;
+    // The number of columns in a chunk, a chunk row is one word of the occupancy bitset.
+    private static final int COL_SHIFT = 6;
+    private static final int CHUNK_COLS = 1 << COL_SHIFT;
+    private static final int COL_MASK = CHUNK_COLS - 1;
+    // The number of dropped chunks kept to be used again, so a chunk at the edge
+    // of a population isn't allocated and dropped over and over.
+    private static final int MAX_SPARE_CHUNKS = 64;
+
+    // The depth and width of the field.
+    private final int depth, width;
+    // The number of chunks in a row of chunks.
+    private final int chunkCols;
+    // The chunks, row of chunks after row of chunks. Null where a chunk is empty.
+    private final Chunk[] chunks;
+    // Empty chunks that can be used again, used as a stack.
+    private final Chunk[] spare;
+    private int spareCount;
+
+    /**
+     * The taken positions of one chunk. The n-th taken position, counting row after
+     * row, has the n-th cell and sprite.
+     */
+    private static class Chunk {
+        // The species code and mark bit of every taken position.
+        int[] cells = new int[4];
+        // The sprite of every taken position.
+        FieldSprite[] sprites = new FieldSprite[4];
+        // The occupancy bits, one word per row of the chunk.
+        final long[] occupied = new long[CHUNK_ROWS];
+        // The number of positions taken.
+        int taken;
+
+        /**
+         * @param word The row within the chunk
+         * @param bit The bit of the position within the row
+         * @return The number of taken positions before the position, its index in cells and sprites.
+         */
+        int rank(int word, long bit){
+            int rank = Long.bitCount(occupied[word] & (bit - 1));
+            for(int w = 0; w < word; w++) {
+                rank += Long.bitCount(occupied[w]);
+            }
+            return rank;
+        }
+
+        /**
+         * Make room for a newly taken position.
+         * @param rank The index the position gets
+         */
+        void insert(int rank){
+            if(taken == cells.length) {
+                cells = Arrays.copyOf(cells, taken * 2);
+                sprites = Arrays.copyOf(sprites, taken * 2);
+            }
+            System.arraycopy(cells, rank, cells, rank + 1, taken - rank);
+            System.arraycopy(sprites, rank, sprites, rank + 1, taken - rank);
+            taken++;
+        }
+
+        /**
+         * Close the gap of a position that was freed.
+         * @param rank The index the position had
+         */
+        void remove(int rank){
+            taken--;
+            System.arraycopy(cells, rank + 1, cells, rank, taken - rank);
+            System.arraycopy(sprites, rank + 1, sprites, rank, taken - rank);
+            sprites[taken] = null;
+        }
+    }
+
+    /**
+     * Create an empty store for a field of the given dimensions. Only the table of chunks is allocated.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public ChunkedFieldStore(int depth, int width){
+        this.depth = depth;
+        this.width = width;
+        chunkCols = (width + COL_MASK) >> COL_SHIFT;
+        int chunkRows = (depth + ROW_MASK) >> ROW_SHIFT;
+        chunks = new Chunk[chunkRows * chunkCols];
+        spare = new Chunk[MAX_SPARE_CHUNKS];
+    }
+
+    /**
+     * Drop every chunk.
+     */
+    public void clear(){
+        Arrays.fill(chunks, null);
+    }
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return The species code and mark bit of the position, Species.EMPTY if it's free
+     */
+    public int getCell(int row, int col){
+        Chunk chunk = chunks[(row >> ROW_SHIFT) * chunkCols + (col >> COL_SHIFT)];
+        int word = row & ROW_MASK;
+        long bit = 1L << col;
+        if(chunk == null || (chunk.occupied[word] & bit) == 0) {
+            return Species.EMPTY;
+        }
+        return chunk.cells[chunk.rank(word, bit)];
+    }
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return The sprite at the position, null if it's free
+     */
+    public FieldSprite getSprite(int row, int col){
+        Chunk chunk = chunks[(row >> ROW_SHIFT) * chunkCols + (col >> COL_SHIFT)];
+        int word = row & ROW_MASK;
+        long bit = 1L << col;
+        if(chunk == null || (chunk.occupied[word] & bit) == 0) {
+            return null;
+        }
+        return chunk.sprites[chunk.rank(word, bit)];
+    }
+
+    /**
+     * Store a cell value and sprite. The chunk is allocated on the first placement
+     * in it, and dropped when its last position is cleared.
+     * @param row The row of the position
+     * @param col The column of the position
+     * @param cell The species code, possibly with Field.MARK set
+     * @param sprite The sprite, null when the position is cleared
+     */
+    public void set(int row, int col, int cell, FieldSprite sprite){
+        int index = (row >> ROW_SHIFT) * chunkCols + (col >> COL_SHIFT);
+        boolean take = (cell & Field.SPECIES_MASK) != Species.EMPTY;
+        Chunk chunk = chunks[index];
+        if(chunk == null) {
+            if(!take) {
+                return;
+            }
+            chunk = spareCount > 0 ? spare[--spareCount] : new Chunk();
+            chunks[index] = chunk;
+        }
+        long bit = 1L << col;
+        int word = row & ROW_MASK;
+        boolean taken = (chunk.occupied[word] & bit) != 0;
+        if(!take && !taken) {
+            return;
+        }
+        int rank = chunk.rank(word, bit);
+        if(take && !taken) {
+            chunk.occupied[word] |= bit;
+            chunk.insert(rank);
+        }
+        else if(!take) {
+            chunk.occupied[word] &= ~bit;
+            chunk.remove(rank);
+            // The chunk is all empty again, so it's as good as new.
+            if(chunk.taken == 0) {
+                chunks[index] = null;
+                if(spareCount < MAX_SPARE_CHUNKS) {
+                    spare[spareCount++] = chunk;
+                }
+            }
+            return;
+        }
+        chunk.cells[rank] = cell;
+        chunk.sprites[rank] = sprite;
+    }
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return True if the position is taken
+     */
+    public boolean isTaken(int row, int col){
+        Chunk chunk = chunks[(row >> ROW_SHIFT) * chunkCols + (col >> COL_SHIFT)];
+        return chunk != null && (chunk.occupied[row & ROW_MASK] & (1L << col)) != 0;
+    }
+
+    /**
+     * A word of a row is exactly one row of a chunk.
+     * @param row The row
+     * @param word The index of the word within the row
+     * @return The bits of the word, set where a position is taken
+     */
+    public long getOccupiedWord(int row, int word){
+        Chunk chunk = chunks[(row >> ROW_SHIFT) * chunkCols + word];
+        return chunk == null ? 0L : chunk.occupied[row & ROW_MASK];
+    }
+
+    /**
+     * Copy the cell values row after row, only the taken positions of the chunks that are there are visited.
+     * @param destination An array of at least depth * width cells
+     */
+    public void copyCells(int[] destination){
+        Arrays.fill(destination, 0, depth * width, Species.EMPTY);
+        for(int index = 0; index < chunks.length; index++) {
+            Chunk chunk = chunks[index];
+            if(chunk != null) {
+                int top = (index / chunkCols) << ROW_SHIFT;
+                int left = (index % chunkCols) << COL_SHIFT;
+                int rank = 0;
+                for(int r = 0; r < CHUNK_ROWS; r++) {
+                    for(long bits = chunk.occupied[r]; bits != 0; bits &= bits - 1) {
+                        int c = Long.numberOfTrailingZeros(bits);
+                        destination[(top + r) * width + left + c] = chunk.cells[rank++];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Chunks span several rows and come and go as the field changes.
+     * @return Always false
+     */
+    public boolean supportsParallelUpdate(){
+        return false;
+    }
+}
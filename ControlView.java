@@ -2,14 +2,11 @@ import java.awt.*;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.event.*;
-import java.util.Observer;
-import java.util.Observable;
-import java.util.HashMap;
 
 /**
  * Display for the Control Buttons on the GUI
  */
-public class ControlView extends JPanel implements Observer {
+public class ControlView extends JPanel implements StepListener {
     // Create instances of the Buttons and Labels
     private JButton playPauseButton = new JButton("Start");
     private JButton addStepsButton = new JButton("Add steps");
@@ -53,22 +50,18 @@ public class ControlView extends JPanel implements Observer {
     private JLabel emptySpace3 = new JLabel();
 
     private SimulationControl simulationControl;
-    private Populator populator;
-    private FieldStats stats;
     private OptionPanel options;
 
     /**
      * Constructor for Controlview that creates the whole view
-     * @param stats FieldStats
+     * @param simulationControl The control that runs the simulation
      */
-    public ControlView(FieldStats stats, SimulationControl simulationControl){
+    public ControlView(SimulationControl simulationControl){
         this.setLayout(new GridLayout(9,3, 6, 12));
         setBorder(new EmptyBorder(12,12,12,12));
 
         this.simulationControl = simulationControl;
-        this.stats = stats;
-        this.populator = simulationControl.getPopulator();
-        options = new OptionPanel();
+        options = new OptionPanel(simulationControl);
 
         setPopulationControls();
         setControlButtons();
@@ -191,7 +184,7 @@ public class ControlView extends JPanel implements Observer {
     private void addStepsButtonPressed() {
         Simulation sim = simulationControl.getSimulation();
         sim.increaseNumSteps(playInput.getIntValue());
-        updateStepsOutput(sim);
+        updateStepsOutput(sim.getStep(), sim.getNumSteps());
     }
 
     /**
@@ -203,11 +196,12 @@ public class ControlView extends JPanel implements Observer {
         double fox = foxInput.getDoubleValue();
         double bear = bearInput.getDoubleValue();
         int hunter = hunterInput.getIntValue();
-        if (!populator.setPopulation(rabbit,fox,bear,hunter)){
+        try {
+            simulationControl.setConfig(simulationControl.getConfig().withPopulation(rabbit,fox,bear,hunter));
+            playOutput.setText("0/0");
+        } catch (IllegalArgumentException e) {
             JOptionPane.showMessageDialog(null, "Waarden kunnen niet negatief zijn.");
             defaultValues();
-        } else {
-            playOutput.setText("0/0");
         }
         simulationControl.reset();
     }
@@ -220,33 +214,23 @@ public class ControlView extends JPanel implements Observer {
     }
 
 /**
- * Updates the control panel when the simulation increases a step
+ * Updates the control panel when the simulation has published a step
  */
-    public void update(Observable observable, Object o) {
-        if(observable instanceof Simulation){
-            Simulation sim = (Simulation)observable;
-            updateStepsOutput(sim);
-            setStartPauseButtonText();
-            HashMap<Class,Counter> counters = stats.getCurrentPopulationCounters();
-            for(Class key : counters.keySet()){
-                if(key == Rabbit.class){
-                    rabbitOutput.setText(String.valueOf(counters.get(key).getCount()));
-                } else if(key == Fox.class){
-                    foxOutput.setText(String.valueOf(counters.get(key).getCount()));
-                } else if(key == Bear.class){
-                    bearOutput.setText(String.valueOf(counters.get(key).getCount()));
-                } else if(key == Hunter.class){
-                    hunterOutput.setText(String.valueOf(counters.get(key).getCount()));
-                }
-            }
-        }
+    public void stepCompleted(StepSnapshot snapshot) {
+        updateStepsOutput(snapshot.getStep(), snapshot.getNumSteps());
+        setStartPauseButtonText();
+        rabbitOutput.setText(String.valueOf(snapshot.getCount(Species.RABBIT)));
+        foxOutput.setText(String.valueOf(snapshot.getCount(Species.FOX)));
+        bearOutput.setText(String.valueOf(snapshot.getCount(Species.BEAR)));
+        hunterOutput.setText(String.valueOf(snapshot.getCount(Species.HUNTER)));
     }
 
     /**
      * Updates the step output accordingly so it's displayed on the controlPanel
-     * @param sim the Simulation class
+     * @param step The current step
+     * @param numSteps The planned number of steps
      */
-    private void updateStepsOutput(Simulation sim){
-        playOutput.setText(sim.getStep() + "/" + sim.getNumSteps());
+    private void updateStepsOutput(int step, int numSteps){
+        playOutput.setText(step + "/" + numSteps);
     }
 }
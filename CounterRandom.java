@@ -0,0 +1,81 @@
+import java.util.Random;
+
+/**
+ * A random generator that keeps no state that has to be updated atomically.
+ * The n-th number of a stream is a hash of the key of the stream and n, in the
+ * style of SplitMix. A stream is keyed by the seed of a run, the step and the
+ * entity that draws from it, so an entity draws the same numbers no matter which
+ * thread runs it or what other entities did before it.
+ * An instance must only be used by one thread, see Randomizer.
+ */
+public class CounterRandom extends Random {
+    // The golden ratio increment used by SplitMix.
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // The key of the current stream.
+    private long key;
+    // The number of values drawn from the current stream.
+    private long counter;
+
+    /**
+     * Create a generator, keyed with seed 0 until key is called.
+     */
+    public CounterRandom(){
+        super(0);
+    }
+
+    /**
+     * Start the stream that belongs to an entity at a step of a run.
+     * @param seed The seed of the run
+     * @param step The step that is being simulated
+     * @param entity The id of the entity that is going to draw
+     */
+    public void key(long seed, long step, long entity){
+        key = mix(mix(mix(seed) + step) + entity);
+        counter = 0;
+    }
+
+    /**
+     * Start the stream of the given seed, at step 0 for entity 0.
+     * @param seed The seed of the run
+     */
+    public void setSeed(long seed){
+        key(seed, 0, 0);
+    }
+
+    /**
+     * Generate the next value of the stream, the base of all other next methods.
+     * @param bits The number of random bits wanted
+     * @return The next value, in the lowest bits
+     */
+    protected int next(int bits){
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * @return The next 64 random bits of the stream.
+     */
+    public long nextLong(){
+        counter++;
+        return mix(key + counter * GOLDEN_GAMMA);
+    }
+
+    /**
+     * @return The next double of the stream, between 0.0 inclusive and 1.0 exclusive.
+     */
+    public double nextDouble(){
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * The SplitMix64 finaliser, spreads every bit of the input over the output.
+     * @param z The value to mix
+     * @return The mixed value
+     */
+    private static long mix(long z){
+        z += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
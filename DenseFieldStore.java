@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+/**
+ * A field store that keeps every position in flat arrays, row after row.
+ * Fast and simple, but the memory it takes grows with the area of the field,
+ * however empty the field is.
+ */
+public class DenseFieldStore implements FieldStore {
+    // The width of the field.
+    private final int width;
+    // The number of 64 bit words used for one row of the occupancy bitset.
+    private final int wordsPerRow;
+    // The species code and mark bit of every position, stored row after row.
+    private final int[] cells;
+    // The sprite of every position, indexed the same way as cells.
+    private final FieldSprite[] sprites;
+    // One bit per position that is set when the position is taken. Every row starts on a new word.
+    private final long[] occupied;
+
+    /**
+     * Create an empty store for a field of the given dimensions.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public DenseFieldStore(int depth, int width){
+        this.width = width;
+        wordsPerRow = (width + 63) / 64;
+        cells = new int[depth * width];
+        sprites = new FieldSprite[depth * width];
+        occupied = new long[depth * wordsPerRow];
+    }
+
+    /**
+     * Empty every position.
+     */
+    public void clear(){
+        Arrays.fill(cells, Species.EMPTY);
+        Arrays.fill(sprites, null);
+        Arrays.fill(occupied, 0L);
+    }
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return The species code and mark bit of the position, Species.EMPTY if it's free
+     */
+    public int getCell(int row, int col){
+        return cells[row * width + col];
+    }
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return The sprite at the position, null if it's free
+     */
+    public FieldSprite getSprite(int row, int col){
+        return sprites[row * width + col];
+    }
+
+    /**
+     * Store a cell value and sprite, and keep the occupancy bit up to date.
+     * @param row The row of the position
+     * @param col The column of the position
+     * @param cell The species code, possibly with Field.MARK set
+     * @param sprite The sprite, null when the position is cleared
+     */
+    public void set(int row, int col, int cell, FieldSprite sprite){
+        int index = row * width + col;
+        cells[index] = cell;
+        sprites[index] = sprite;
+        int word = row * wordsPerRow + (col >>> 6);
+        if((cell & Field.SPECIES_MASK) == Species.EMPTY) {
+            occupied[word] &= ~(1L << col);
+        }
+        else {
+            occupied[word] |= 1L << col;
+        }
+    }
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return True if the position is taken
+     */
+    public boolean isTaken(int row, int col){
+        return (occupied[row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    /**
+     * @param row The row
+     * @param word The index of the word within the row
+     * @return The bits of the word, set where a position is taken
+     */
+    public long getOccupiedWord(int row, int word){
+        return occupied[row * wordsPerRow + word];
+    }
+
+    /**
+     * Copy the cell values, the store is already laid out row after row.
+     * @param destination An array of at least depth * width cells
+     */
+    public void copyCells(int[] destination){
+        System.arraycopy(cells, 0, destination, 0, cells.length);
+    }
+
+    /**
+     * Every row has its own part of every array, so rows can be changed in parallel.
+     * @return Always true
+     */
+    public boolean supportsParallelUpdate(){
+        return true;
+    }
+}
@@ -0,0 +1,61 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for a step in which a species lost a large part of its
+ * population. Small populations are left out, they go up and down by chance.
+ */
+@Name("foxesandrabbits.DieOff")
+@Label("Mass Die-off")
+@Category("Foxes and Rabbits")
+@StackTrace(false)
+@Description("A species lost a large part of its population in one step")
+public class DieOffEvent extends jdk.jfr.Event {
+    // The part of its population a species must lose in one step.
+    public static final double FRACTION = 0.2;
+    // The smallest population that is watched.
+    public static final long MIN_POPULATION = 100;
+
+    @Label("Step")
+    long step;
+
+    @Label("Species")
+    String species;
+
+    @Label("Before")
+    long before;
+
+    @Label("After")
+    long after;
+
+    /**
+     * Check whether a change of population is a die-off.
+     * @param before The population at the start of the step
+     * @param after The population at the end of the step
+     * @return True if the species lost at least FRACTION of at least MIN_POPULATION
+     */
+    public static boolean isDieOff(long before, long after){
+        return before >= MIN_POPULATION && before - after >= FRACTION * before;
+    }
+
+    /**
+     * Record a die-off.
+     * @param step The number of the step
+     * @param species The species code
+     * @param before The population at the start of the step
+     * @param after The population at the end of the step
+     */
+    public static void emit(long step, int species, long before, long after){
+        DieOffEvent event = new DieOffEvent();
+        if(event.shouldCommit()){
+            event.step = step;
+            event.species = Species.getName(species);
+            event.before = before;
+            event.after = after;
+            event.commit();
+        }
+    }
+}
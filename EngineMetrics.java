@@ -0,0 +1,278 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live figures of a running simulation for JMX: how fast it steps, how long every
+ * phase of a step takes and how the population changes. The engine times the phases
+ * of a step, the simulator thread of the GUI times what it does around a step. Every
+ * phase has a LatencyHistogram, so timing a phase costs two calls of System.nanoTime
+ * and no allocation.
+ *
+ * The percentiles follow the run as it changes: timings are counted in intervals of
+ * PERCENTILE_WINDOW, and the percentiles cover the last full interval and the current
+ * one. When an interval is full the histograms of the one before are cleared and
+ * take its place.
+ *
+ * Register the metrics to watch them in jconsole under FoxesAndRabbits, EngineMetrics.
+ */
+public class EngineMetrics implements EngineMetricsMBean {
+    // The name the metrics are registered under.
+    public static final String NAME = "FoxesAndRabbits:type=EngineMetrics";
+
+    // A whole step of the engine.
+    public static final int STEP = 0;
+    // Aging all animals.
+    public static final int AGE = 1;
+    // The hunters shooting.
+    public static final int SHOOT = 2;
+    // All actors acting, the act loop.
+    public static final int ACT = 3;
+    // Removing the dead from the strips and adding the movers and newborns.
+    public static final int MERGE = 4;
+    // Checking whether the simulation is still viable.
+    public static final int VIABLE = 5;
+    // Writing the step to the replay log.
+    public static final int RECORD = 6;
+    // Telling the listeners about the step.
+    public static final int PUBLISH = 7;
+    // Handing a snapshot of the field to the view.
+    public static final int SHOW = 8;
+    // The number of phases.
+    public static final int PHASES = 9;
+
+    // How long the rate of steps is counted before it is updated.
+    private static final long RATE_WINDOW = 1000000000L;
+    // How long the timings of an interval are counted before the next interval starts.
+    private static final long PERCENTILE_WINDOW = 10000000000L;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double BYTES_PER_MEGABYTE = 1 << 20;
+
+    // The timings of every phase in the current interval, and in the last full one.
+    private volatile LatencyHistogram[] phases, lastPhases;
+    // When the current interval started.
+    private long intervalStart;
+    // The figures of the last step.
+    private volatile long steps;
+    private volatile int actors, births, deaths;
+    // The steps counted in the current window and when it started.
+    private long windowStart, windowSteps;
+    // The rate of the last full window and when the last step ended.
+    private volatile double stepsPerSecond;
+    private volatile long lastStep;
+
+    /**
+     * Create metrics without any steps.
+     */
+    public EngineMetrics(){
+        phases = createHistograms();
+        lastPhases = createHistograms();
+        windowStart = System.nanoTime();
+        intervalStart = windowStart;
+    }
+
+    /**
+     * Register the metrics with the platform MBean server, under NAME.
+     * @throws JMException If metrics are already registered under that name
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(NAME));
+    }
+
+    /**
+     * Count the time a phase took.
+     * @param phase The phase, e.g. ACT
+     * @param nanos The time in nanoseconds
+     */
+    public void record(int phase, long nanos){
+        phases[phase].record(nanos);
+    }
+
+    /**
+     * Count a step of the engine. Only one thread may call this.
+     * @param actors The number of actors after the step
+     * @param births The number of animals born in the step
+     * @param deaths The number of actors that died in the step
+     * @param nanos The time the step took in nanoseconds
+     */
+    public void stepDone(int actors, int births, int deaths, long nanos){
+        phases[STEP].record(nanos);
+        this.actors = actors;
+        this.births = births;
+        this.deaths = deaths;
+        steps++;
+        long now = System.nanoTime();
+        windowSteps++;
+        if(now - windowStart >= RATE_WINDOW){
+            stepsPerSecond = windowSteps * 1e9 / (now - windowStart);
+            windowStart = now;
+            windowSteps = 0;
+        }
+        if(now - intervalStart >= PERCENTILE_WINDOW){
+            startInterval();
+            intervalStart = now;
+        }
+        lastStep = now;
+    }
+
+    /**
+     * Start counting a new run: forget everything of the run before.
+     * @param actors The number of actors the run starts with
+     */
+    public void startRun(int actors){
+        clearStatistics();
+        this.actors = actors;
+        births = 0;
+        deaths = 0;
+        steps = 0;
+    }
+
+    public void clearStatistics(){
+        for(int phase = 0; phase < PHASES; phase++){
+            phases[phase].clear();
+            lastPhases[phase].clear();
+        }
+    }
+
+    /**
+     * Make the current interval the last full one, and start counting a new interval
+     * in the histograms of the one before.
+     */
+    private void startInterval(){
+        LatencyHistogram[] oldest = lastPhases;
+        for(LatencyHistogram phase : oldest){
+            phase.clear();
+        }
+        lastPhases = phases;
+        phases = oldest;
+    }
+
+    /**
+     * @return A new, empty histogram for every phase.
+     */
+    private static LatencyHistogram[] createHistograms(){
+        LatencyHistogram[] histograms = new LatencyHistogram[PHASES];
+        for(int phase = 0; phase < PHASES; phase++){
+            histograms[phase] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    public double getStepsPerSecond(){
+        // A run that stopped or paused makes no steps, whatever the last window said.
+        return System.nanoTime() - lastStep > RATE_WINDOW ? 0 : stepsPerSecond;
+    }
+
+    public long getSteps(){
+        return steps;
+    }
+
+    public int getActors(){
+        return actors;
+    }
+
+    public int getBirths(){
+        return births;
+    }
+
+    public int getDeaths(){
+        return deaths;
+    }
+
+    public double getHeapUsedMegabytes(){
+        return getHeap().getUsed() / BYTES_PER_MEGABYTE;
+    }
+
+    public double getHeapMaxMegabytes(){
+        return getHeap().getMax() / BYTES_PER_MEGABYTE;
+    }
+
+    /**
+     * @return The current use of the heap.
+     */
+    private MemoryUsage getHeap(){
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    }
+
+    /**
+     * @param phase The phase
+     * @param fraction The percentile as a fraction, 0.5 for the median
+     * @return The time in milliseconds that the fraction of the recent timings of the phase doesn't exceed.
+     */
+    public double getPercentileMillis(int phase, double fraction){
+        return phases[phase].getPercentile(fraction, lastPhases[phase]) / NANOS_PER_MILLI;
+    }
+
+    public double getStepP50Millis(){
+        return getPercentileMillis(STEP, 0.5);
+    }
+
+    public double getStepP99Millis(){
+        return getPercentileMillis(STEP, 0.99);
+    }
+
+    public double getAgeP50Millis(){
+        return getPercentileMillis(AGE, 0.5);
+    }
+
+    public double getAgeP99Millis(){
+        return getPercentileMillis(AGE, 0.99);
+    }
+
+    public double getShootP50Millis(){
+        return getPercentileMillis(SHOOT, 0.5);
+    }
+
+    public double getShootP99Millis(){
+        return getPercentileMillis(SHOOT, 0.99);
+    }
+
+    public double getActP50Millis(){
+        return getPercentileMillis(ACT, 0.5);
+    }
+
+    public double getActP99Millis(){
+        return getPercentileMillis(ACT, 0.99);
+    }
+
+    public double getMergeP50Millis(){
+        return getPercentileMillis(MERGE, 0.5);
+    }
+
+    public double getMergeP99Millis(){
+        return getPercentileMillis(MERGE, 0.99);
+    }
+
+    public double getViableP50Millis(){
+        return getPercentileMillis(VIABLE, 0.5);
+    }
+
+    public double getViableP99Millis(){
+        return getPercentileMillis(VIABLE, 0.99);
+    }
+
+    public double getRecordP50Millis(){
+        return getPercentileMillis(RECORD, 0.5);
+    }
+
+    public double getRecordP99Millis(){
+        return getPercentileMillis(RECORD, 0.99);
+    }
+
+    public double getPublishP50Millis(){
+        return getPercentileMillis(PUBLISH, 0.5);
+    }
+
+    public double getPublishP99Millis(){
+        return getPercentileMillis(PUBLISH, 0.99);
+    }
+
+    public double getShowP50Millis(){
+        return getPercentileMillis(SHOW, 0.5);
+    }
+
+    public double getShowP99Millis(){
+        return getPercentileMillis(SHOW, 0.99);
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * The management interface of EngineMetrics, what jconsole and other JMX clients
+ * see of a running simulation. Durations are in milliseconds; the percentiles
+ * cover the recent steps, those of the last 10 to 20 seconds of stepping.
+ */
+public interface EngineMetricsMBean {
+
+    /**
+     * @return The number of steps made in the last second.
+     */
+    double getStepsPerSecond();
+
+    /**
+     * @return The number of steps made since the run started.
+     */
+    long getSteps();
+
+    /**
+     * @return The number of actors after the last step.
+     */
+    int getActors();
+
+    /**
+     * @return The number of animals born in the last step.
+     */
+    int getBirths();
+
+    /**
+     * @return The number of actors that died in the last step.
+     */
+    int getDeaths();
+
+    /**
+     * @return The heap in use, in megabytes.
+     */
+    double getHeapUsedMegabytes();
+
+    /**
+     * @return The most the heap can grow to, in megabytes.
+     */
+    double getHeapMaxMegabytes();
+
+    double getStepP50Millis();
+
+    double getStepP99Millis();
+
+    double getAgeP50Millis();
+
+    double getAgeP99Millis();
+
+    double getShootP50Millis();
+
+    double getShootP99Millis();
+
+    double getActP50Millis();
+
+    double getActP99Millis();
+
+    double getMergeP50Millis();
+
+    double getMergeP99Millis();
+
+    double getViableP50Millis();
+
+    double getViableP99Millis();
+
+    double getRecordP50Millis();
+
+    double getRecordP99Millis();
+
+    double getPublishP50Millis();
+
+    double getPublishP99Millis();
+
+    double getShowP50Millis();
+
+    double getShowP99Millis();
+
+    /**
+     * Forget the timings so far, e.g. to see how fast the run is now.
+     */
+    void clearStatistics();
+}
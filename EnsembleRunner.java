@@ -0,0 +1,395 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs a sweep of headless simulations: every combination of the swept parameter
+ * values, each with a number of replicate seeds. The runs are independent and run
+ * side by side on a pool with one thread per core, each on an engine and
+ * configuration of its own. A summary line is written for every run as soon as it
+ * is done, so lines are in the order runs finish; the run column gives their order.
+ *
+ * Replicate r of every combination uses seed + r, so all combinations are compared
+ * on the same random numbers.
+ *
+ * A summary holds the run, replicate and seed, the value of every swept parameter,
+ * the number of steps made and whether the run was still viable at the end, then for
+ * every animal species the step it died out (empty if it didn't), and its peak and
+ * mean population over all steps, the starting population included.
+ *
+ * Usage: java EnsembleRunner [option value]...
+ *   -depth       depth of the field (default 60)
+ *   -width       width of the field (default 80)
+ *   -steps       the largest number of steps of a run; a run also ends when it is no longer viable (default 1000)
+ *   -replicates  the number of seeds every combination is run with (default 10)
+ *   -seed        the seed of the first replicate (default 1)
+ *   -threads     the number of runs at the same time (default: the number of cores)
+ *   -out         file to write the summaries to (default: standard output)
+ * Swept parameters take a list of values, "4,8,12", or a range, "4:12:4" (from:to:step):
+ *   -rabbits, -foxes, -bears   percentage of positions starting with that species
+ *   -hunters                   the number of hunters
+ *   -rabbit.breedingAge, -rabbit.maxAge, -rabbit.breedingProbability, -rabbit.maxLitterSize,
+ *   -rabbit.genePercentage, and the same for fox and bear
+ */
+public class EnsembleRunner {
+    // The names of the parameters of a species that can be swept.
+    private static final String[] SPECIES_PARAMETERS =
+        {"breedingAge", "maxAge", "breedingProbability", "maxLitterSize", "genePercentage"};
+
+    private int depth = 60;
+    private int width = 80;
+    private int steps = 1000;
+    private int replicates = 10;
+    private long seed = 1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String out = null;
+    // The swept parameters and their values, in the order they were given.
+    private List<String> names = new ArrayList<String>();
+    private List<double[]> values = new ArrayList<double[]>();
+
+    /**
+     * Start a sweep with the given command line options
+     * @param args The command line options
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        EnsembleRunner runner = new EnsembleRunner();
+        if(!runner.parse(args)){
+            System.err.println("Usage: java EnsembleRunner [-depth n] [-width n] [-steps n] [-replicates n] [-seed n]"
+                    + " [-threads n] [-out file] [-parameter values]...");
+            System.exit(1);
+        }
+        runner.run();
+    }
+
+    /**
+     * Read the options from the command line
+     * @param args The command line options
+     * @return false if the options could not be understood
+     */
+    private boolean parse(String[] args){
+        if(args.length % 2 != 0){
+            return false;
+        }
+        try {
+            for(int i = 0; i < args.length; i += 2){
+                String option = args[i];
+                String value = args[i + 1];
+                if("-depth".equals(option)){
+                    depth = Integer.parseInt(value);
+                } else if("-width".equals(option)){
+                    width = Integer.parseInt(value);
+                } else if("-steps".equals(option)){
+                    steps = Integer.parseInt(value);
+                } else if("-replicates".equals(option)){
+                    replicates = Integer.parseInt(value);
+                } else if("-seed".equals(option)){
+                    seed = Long.parseLong(value);
+                } else if("-threads".equals(option)){
+                    threads = Integer.parseInt(value);
+                } else if("-out".equals(option)){
+                    out = value;
+                } else if(option.startsWith("-") && isParameter(option.substring(1)) && !names.contains(option.substring(1))){
+                    double[] list = parseValues(value);
+                    if(list == null){
+                        return false;
+                    }
+                    names.add(option.substring(1));
+                    values.add(list);
+                } else {
+                    return false;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return depth > 0 && width > 0 && steps >= 0 && replicates > 0 && threads > 0;
+    }
+
+    /**
+     * Check if a name is a parameter that can be swept
+     * @param name The name, e.g. "foxes" or "fox.maxAge"
+     * @return True if it can be swept
+     */
+    private static boolean isParameter(String name){
+        if("rabbits".equals(name) || "foxes".equals(name) || "bears".equals(name) || "hunters".equals(name)){
+            return true;
+        }
+        int dot = name.indexOf('.');
+        if(dot < 0 || !Species.isAnimal(Species.forName(capitalize(name.substring(0, dot))))){
+            return false;
+        }
+        for(String parameter : SPECIES_PARAMETERS){
+            if(parameter.equals(name.substring(dot + 1))){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read a list of values, "4,8,12", or a range, "4:12:4"
+     * @param text The values
+     * @return The values, null if a range doesn't make sense
+     */
+    private static double[] parseValues(String text){
+        String[] range = text.split(":");
+        if(range.length == 3){
+            double from = Double.parseDouble(range[0]);
+            double to = Double.parseDouble(range[1]);
+            double step = Double.parseDouble(range[2]);
+            if(step <= 0 || to < from){
+                return null;
+            }
+            // A little slack, so that e.g. 0:1:0.1 ends at 1 despite rounding.
+            int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+            double[] list = new double[count];
+            for(int i = 0; i < count; i++){
+                list[i] = from + i * step;
+            }
+            return list;
+        }
+        String[] items = text.split(",");
+        double[] list = new double[items.length];
+        for(int i = 0; i < items.length; i++){
+            list[i] = Double.parseDouble(items[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Run every combination and replicate, and write the summaries as they come in
+     */
+    private void run() throws IOException, InterruptedException {
+        int combinations = 1;
+        for(double[] list : values){
+            combinations *= list.length;
+        }
+        int runs = combinations * replicates;
+
+        PrintStream output = out == null ? System.out
+                : new PrintStream(new BufferedOutputStream(new FileOutputStream(out)));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            writeHeader(output);
+            ExecutorCompletionService<String> done = new ExecutorCompletionService<String>(pool);
+            long start = System.nanoTime();
+            for(int combination = 0; combination < combinations; combination++){
+                double[] point = getPoint(combination);
+                for(int replicate = 0; replicate < replicates; replicate++){
+                    done.submit(new EnsembleRun(combination * replicates + replicate, replicate, point));
+                }
+            }
+            for(int finished = 1; finished <= runs; finished++){
+                try {
+                    output.println(done.take().get());
+                    output.flush();
+                } catch (ExecutionException e) {
+                    //A run that fails is reported, the others go on
+                    System.err.println("A run failed: " + e.getCause());
+                }
+                if(finished % Math.max(1, runs / 20) == 0 || finished == runs){
+                    System.err.println(finished + "/" + runs + " runs in " + (System.nanoTime() - start) / 1000000 + " ms");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            output.flush();
+            if(output != System.out){
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Find the values of the swept parameters of a combination, the last parameter changes fastest
+     * @param combination The index of the combination
+     * @return The value of every swept parameter
+     */
+    private double[] getPoint(int combination){
+        double[] point = new double[names.size()];
+        for(int i = names.size() - 1; i >= 0; i--){
+            double[] list = values.get(i);
+            point[i] = list[combination % list.length];
+            combination /= list.length;
+        }
+        return point;
+    }
+
+    /**
+     * Make the configuration of a combination
+     * @param point The value of every swept parameter
+     * @return The configuration
+     */
+    private SimulationConfig makeConfig(double[] point){
+        SimulationConfig config = SimulationConfig.DEFAULT;
+        double rabbits = config.getRabbitProbability() * 100;
+        double foxes = config.getFoxProbability() * 100;
+        double bears = config.getBearProbability() * 100;
+        double hunters = config.getHunters();
+        for(int i = 0; i < point.length; i++){
+            String name = names.get(i);
+            double value = point[i];
+            if("rabbits".equals(name)){
+                rabbits = value;
+            } else if("foxes".equals(name)){
+                foxes = value;
+            } else if("bears".equals(name)){
+                bears = value;
+            } else if("hunters".equals(name)){
+                hunters = value;
+            } else {
+                int dot = name.indexOf('.');
+                int species = Species.forName(capitalize(name.substring(0, dot)));
+                config = config.withSpecies(species, setParameter(config.getSpecies(species), name.substring(dot + 1), value));
+            }
+        }
+        return config.withPopulation(rabbits, foxes, bears, hunters);
+    }
+
+    /**
+     * Make a copy of the parameters of a species with one of them changed
+     * @param parameters The parameters
+     * @param name The name of the parameter, one of SPECIES_PARAMETERS
+     * @param value The new value
+     * @return The changed copy
+     */
+    private static SpeciesParameters setParameter(SpeciesParameters parameters, String name, double value){
+        int breedingAge = parameters.getBreedingAge();
+        int maxAge = parameters.getMaxAge();
+        double breedingProbability = parameters.getBreedingProbability();
+        int maxLitterSize = parameters.getMaxLitterSize();
+        int genePercentage = parameters.getGenePercentage();
+        if("breedingAge".equals(name)){
+            breedingAge = (int) value;
+        } else if("maxAge".equals(name)){
+            maxAge = (int) value;
+        } else if("breedingProbability".equals(name)){
+            breedingProbability = value;
+        } else if("maxLitterSize".equals(name)){
+            maxLitterSize = (int) value;
+        } else if("genePercentage".equals(name)){
+            genePercentage = (int) value;
+        }
+        return new SpeciesParameters(breedingAge, maxAge, breedingProbability, maxLitterSize,
+                genePercentage, parameters.getFoodValues());
+    }
+
+    /**
+     * Write the column names
+     * @param output Where to write to
+     */
+    private void writeHeader(PrintStream output){
+        StringBuilder line = new StringBuilder("run,replicate,seed");
+        for(String name : names){
+            line.append(',').append(name);
+        }
+        line.append(",steps,viable");
+        for(int species = 0; species < Species.COUNT; species++){
+            if(Species.isAnimal(species)){
+                String name = Species.getName(species);
+                line.append(',').append(name).append("Extinct");
+                line.append(',').append(name).append("Peak");
+                line.append(',').append(name).append("Mean");
+            }
+        }
+        output.println(line);
+    }
+
+    /**
+     * Turn "fox" into "Fox", the form Species uses
+     * @param name The name
+     * @return The name with a capital
+     */
+    private static String capitalize(String name){
+        return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * One run of the sweep, on an engine of its own. Gives the summary line of the run.
+     */
+    private class EnsembleRun implements Callable<String> {
+        // The index of the run, its replicate and the values of the swept parameters.
+        private final int run;
+        private final int replicate;
+        private final double[] point;
+
+        /**
+         * Create a run
+         * @param run The index of the run
+         * @param replicate The replicate, the run uses seed + replicate
+         * @param point The value of every swept parameter
+         */
+        public EnsembleRun(int run, int replicate, double[] point){
+            this.run = run;
+            this.replicate = replicate;
+            this.point = point;
+        }
+
+        /**
+         * Run the simulation and summarize it
+         * @return The summary line
+         */
+        public String call(){
+            SimulationEngine engine = new SimulationEngine(depth, width);
+            engine.setSeed(seed + replicate);
+            engine.setConfig(makeConfig(point));
+            engine.reset();
+            Field field = engine.getField();
+
+            long[] extinct = new long[Species.COUNT];
+            long[] peak = new long[Species.COUNT];
+            long[] total = new long[Species.COUNT];
+            Arrays.fill(extinct, -1);
+            int step = 0;
+            observe(field, step, extinct, peak, total);
+            while(step < steps && engine.isViable()){
+                engine.step();
+                step++;
+                observe(field, step, extinct, peak, total);
+            }
+
+            StringBuilder line = new StringBuilder();
+            line.append(run).append(',').append(replicate).append(',').append(seed + replicate);
+            for(double value : point){
+                line.append(',').append(value);
+            }
+            line.append(',').append(step).append(',').append(engine.isViable());
+            for(int species = 0; species < Species.COUNT; species++){
+                if(Species.isAnimal(species)){
+                    line.append(',');
+                    if(extinct[species] >= 0){
+                        line.append(extinct[species]);
+                    }
+                    line.append(',').append(peak[species]);
+                    line.append(',').append((double) total[species] / (step + 1));
+                }
+            }
+            return line.toString();
+        }
+
+        /**
+         * Add the population of one step to the summary
+         * @param field The field
+         * @param step The step the field is at
+         * @param extinct The first step every species was gone, -1 while it wasn't
+         * @param peak The largest population of every species so far
+         * @param total The sum of the populations of every species so far
+         */
+        private void observe(Field field, int step, long[] extinct, long[] peak, long[] total){
+            for(int species = 0; species < Species.COUNT; species++){
+                long count = field.getCount(species);
+                if(count == 0 && extinct[species] < 0){
+                    extinct[species] = step;
+                }
+                peak[species] = Math.max(peak[species], count);
+                total[species] += count;
+            }
+        }
+    }
+}
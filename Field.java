@@ -3,36 +3,171 @@ import java.util.*;
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal.
+ * What is on every position is kept in a FieldStore: a dense one for fields that
+ * fit in memory as a whole, a chunked one for very large, mostly empty fields.
  */
 public class Field {
 
-    // A random number generator for providing random locations.
-    private static final Random rand = Randomizer.getRandom();
+    // The bits of a cell that hold the species code.
+    public static final int SPECIES_MASK = 0xff;
+    // The bit of a cell that is set when the sprite on it should be drawn with a mark.
+    public static final int MARK = 0x100;
+
+    // The largest area, in positions, that gets a dense store by default.
+    public static final long DENSE_LIMIT = 1L << 24;
+    // The least number of shuffled orders kept for each range.
+    private static final int PERMUTATIONS = 64;
+    // A walk turns its order by one of the 8 symmetries of a square, picked with these bits.
+    private static final int SYMMETRIES = 8;
+    private static final int TRANSPOSE = 4, FLIP_ROWS = 2, FLIP_COLS = 1;
+    // Shuffled neighbour offsets, indexed by range. Built on first use of a range.
+    private static volatile int[][][] offsetTables = new int[0][][];
     // The depth and width of the field.
     private int depth, width;
-    // Storage for the field sprites.
-    private FieldSprite[][] field;
+    // The cell value and sprite of every position, and which positions are taken.
+    private FieldStore store;
+    // The number of 64 bit words used for one row of the occupancy bitset.
+    private int wordsPerRow;
+    // The number of free positions in every row.
+    private int[] rowFree;
+    // A Fenwick tree over rowFree, used to find the row of the n-th free position.
+    private long[] freeTree;
+    // The number of free positions in the whole field.
+    private long freeCount;
+    // The number of positions taken by each species, indexed by species code.
+    private long[] speciesCount;
+    // True while rows are being changed by several threads at once, see beginParallelUpdate.
+    private boolean parallelUpdate;
+    // Changes to speciesCount made during a parallel update, per row: [row * Species.COUNT + species].
+    private int[] rowSpeciesDelta;
+    // The number of times an unmarked sprite was marked since the field was cleared.
+    // For rabbits this is the number of infections.
+    private long markings;
+    // Markings made during a parallel update, per row.
+    private int[] rowMarkings;
+    // The state of the animals on the field, one store per species code.
+    private AnimalStore[] stores;
+    // Stops a walk at the first free position, for freeAdjacentLocation.
+    private final NeighbourVisitor firstFree = new NeighbourVisitor() {
+        public boolean visit(int row, int col){
+            return !store.isTaken(row, col);
+        }
+    };
+    // The collector every thread uses for freeAdjacentLocations.
+    private static final ThreadLocal<FreeCollector> freeCollectors = new ThreadLocal<FreeCollector>() {
+        protected FreeCollector initialValue(){
+            return new FreeCollector();
+        }
+    };
 
     /**
-     * Represent a field of the given dimensions.
+     * Represent a field of the given dimensions. Fields up to DENSE_LIMIT positions
+     * are stored densely, larger ones in chunks.
      * @param depth The depth of the field.
      * @param width The width of the field.
      */
     public Field(int depth, int width){
+        this(depth, width, (long) depth * width <= DENSE_LIMIT
+                ? new DenseFieldStore(depth, width) : new ChunkedFieldStore(depth, width));
+    }
+
+    /**
+     * Represent a field of the given dimensions, kept in the given store.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param store An empty store for a field of the same dimensions.
+     */
+    public Field(int depth, int width, FieldStore store){
         this.depth = depth;
         this.width = width;
-        field = new FieldSprite[depth][width];
+        this.store = store;
+        wordsPerRow = (width + 63) / 64;
+        rowFree = new int[depth];
+        freeTree = new long[depth + 1];
+        speciesCount = new long[Species.COUNT];
+        rowSpeciesDelta = new int[depth * Species.COUNT];
+        rowMarkings = new int[depth];
+        stores = new AnimalStore[Species.COUNT];
+        for(int species = 0; species < Species.COUNT; species++){
+            stores[species] = new AnimalStore(width, SimulationConfig.DEFAULT.getSpecies(species));
+        }
+        clear();
     }
     
     /**
-     * Empty the field.
+     * Empty the field. The animal stores are emptied too.
      */
     public void clear(){
+        for(AnimalStore store : stores){
+            store.clear();
+        }
+        store.clear();
+        Arrays.fill(rowFree, width);
+        freeCount = (long) depth * width;
+        Arrays.fill(speciesCount, 0);
+        speciesCount[Species.EMPTY] = freeCount;
+        markings = 0;
+        buildFreeTree();
+    }
+
+    /**
+     * Build the Fenwick tree over rowFree bottom up, every node passes its sum on to its parent.
+     */
+    private void buildFreeTree(){
+        Arrays.fill(freeTree, 0L);
+        for(int i = 1; i <= depth; i++) {
+            freeTree[i] += rowFree[i - 1];
+            int parent = i + (i & -i);
+            if(parent <= depth) {
+                freeTree[parent] += freeTree[i];
+            }
+        }
+    }
+
+    /**
+     * Get the store that holds the state of the animals of a species on this field.
+     * @param species The species code
+     * @return The store of the species
+     */
+    public AnimalStore getStore(int species){
+        return stores[species];
+    }
+
+    /**
+     * Check if the store of the field allows beginParallelUpdate.
+     * @return True if several threads may change different rows at once
+     */
+    public boolean supportsParallelUpdate(){
+        return store.supportsParallelUpdate();
+    }
+
+    /**
+     * Start a phase in which several threads change the field at once, each in its own rows.
+     * Every row has its own bitset words and free count, so those stay exact. The totals that
+     * are shared between rows (the species counts, the free count and the Fenwick tree) are not
+     * touched until endParallelUpdate. Until then getCount and getFreeRandomLocation must not be used.
+     */
+    public void beginParallelUpdate(){
+        parallelUpdate = true;
+    }
+
+    /**
+     * End a parallel phase and bring the shared totals up to date from the rows.
+     */
+    public void endParallelUpdate(){
+        parallelUpdate = false;
+        freeCount = 0;
         for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col] = null;
+            freeCount += rowFree[row];
+            int first = row * Species.COUNT;
+            for(int species = 0; species < Species.COUNT; species++) {
+                speciesCount[species] += rowSpeciesDelta[first + species];
+                rowSpeciesDelta[first + species] = 0;
             }
+            markings += rowMarkings[row];
+            rowMarkings[row] = 0;
         }
+        buildFreeTree();
     }
     
     /**
@@ -40,7 +175,7 @@ public class Field {
      * @param location The location to clear.
      */
     public void clear(Location location){
-        field[location.getRow()][location.getCol()] = null;
+        setCell(location.getRow(), location.getCol(), Species.EMPTY, null);
     }
     
     /**
@@ -51,7 +186,115 @@ public class Field {
      * @param location The location to place the unit
      */
     public void place(FieldSprite sprite, Location location){
-        field[location.getRow()][location.getCol()] = sprite;
+        int cell = sprite.getSpecies();
+        if(sprite.mark()) {
+            cell |= MARK;
+        }
+        setCell(location.getRow(), location.getCol(), cell, sprite);
+    }
+
+    /**
+     * Set or remove the mark of the sprite at the given location.
+     * @param location The location of the sprite.
+     * @param mark True if the sprite should be drawn with a mark.
+     */
+    public void setMarked(Location location, boolean mark){
+        int row = location.getRow();
+        int col = location.getCol();
+        int cell = store.getCell(row, col);
+        if(cell != Species.EMPTY) {
+            if(mark && (cell & MARK) == 0) {
+                if(parallelUpdate) {
+                    rowMarkings[row]++;
+                }
+                else {
+                    markings++;
+                }
+            }
+            store.set(row, col, mark ? cell | MARK : cell & ~MARK, store.getSprite(row, col));
+        }
+    }
+
+    /**
+     * Return the number of times a sprite that wasn't marked got a mark since the
+     * field was cleared. For rabbits this counts the myxomatosis infections.
+     * Like getCount it must not be used during a parallel update.
+     * @return The number of markings
+     */
+    public long getMarkings(){
+        return markings;
+    }
+
+    /**
+     * Copy the species code and mark bit of every position, row after row.
+     * This is what a view needs to draw the field without touching any sprite.
+     * @param destination An array of at least depth * width cells.
+     */
+    public void copyCells(int[] destination){
+        store.copyCells(destination);
+    }
+
+    /**
+     * Store a cell value and sprite at the given position and keep the
+     * free position index and counts up to date.
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @param cell The species code to store, possibly with the MARK bit set.
+     * @param sprite The sprite to store, null when the position is cleared.
+     */
+    private void setCell(int row, int col, int cell, FieldSprite sprite){
+        int oldSpecies = store.getCell(row, col) & SPECIES_MASK;
+        int species = cell & SPECIES_MASK;
+        boolean wasFree = oldSpecies == Species.EMPTY;
+        boolean free = species == Species.EMPTY;
+        store.set(row, col, cell, sprite);
+        if(parallelUpdate) {
+            rowSpeciesDelta[row * Species.COUNT + oldSpecies]--;
+            rowSpeciesDelta[row * Species.COUNT + species]++;
+        }
+        else {
+            speciesCount[oldSpecies]--;
+            speciesCount[species]++;
+        }
+        if(wasFree != free) {
+            updateFree(row, free ? 1 : -1);
+        }
+    }
+
+    /**
+     * Change the number of free positions of a row.
+     * @param row The row that changed.
+     * @param delta The change in free positions.
+     */
+    private void updateFree(int row, int delta){
+        rowFree[row] += delta;
+        if(!parallelUpdate) {
+            freeCount += delta;
+            for(int i = row + 1; i <= depth; i += i & -i) {
+                freeTree[i] += delta;
+            }
+        }
+    }
+
+    /**
+     * Return the number of positions taken by the given species. The count is kept
+     * up to date as sprites are placed and cleared, so this never scans the field.
+     * @param species The species code.
+     * @return The number of positions holding that species.
+     */
+    public long getCount(int species){
+        return speciesCount[species];
+    }
+
+    /**
+     * Check if the given position is free, using the occupancy bitset of the store.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return True if the position lies within the field and is not taken.
+     */
+    public boolean isFree(int row, int col){
+        return row >= 0 && row < depth && col >= 0 && col < width
+                && !store.isTaken(row, col);
     }
     
     /**
@@ -70,11 +313,24 @@ public class Field {
      * @return The FieldSprite at the given location, or null if there is none.
      */
     public FieldSprite getSpriteAt(int row, int col){
-        if(row < field.length && col < field[row].length){
-            return field[row][col];
+        if(row >= 0 && row < depth && col >= 0 && col < width){
+            return store.getSprite(row, col);
         }
         return null;
     }
+
+    /**
+     * Return the species code at the given location without touching the sprite itself.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The species code at the given location, Species.EMPTY if there is none.
+     */
+    public int getSpeciesAt(int row, int col){
+        if(row >= 0 && row < depth && col >= 0 && col < width){
+            return store.getCell(row, col) & SPECIES_MASK;
+        }
+        return Species.EMPTY;
+    }
     
     /**
      * Get a shuffled list of the free adjacent locations.
@@ -86,7 +342,7 @@ public class Field {
         List<Location> free = new LinkedList<Location>();
         List<Location> adjacent = adjacentLocations(location,depth);
         for(Location next : adjacent) {
-            if(getSpriteAt(next) == null) {
+            if(isFree(next.getRow(), next.getCol())) {
                 free.add(next);
             }
         }
@@ -102,17 +358,58 @@ public class Field {
      * @return A valid location within the grid area.
      */
     public Location freeAdjacentLocation(Location location,int depth){
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location,depth);
-        if(free.size() > 0) {
-            return free.get(0);
-        }
-        else {
+        if(location == null) {
             return null;
         }
+        return visitAdjacent(location.getRow(), location.getCol(), depth, firstFree);
+    }
+
+    /**
+     * Fill the given array with free locations adjacent to the given location,
+     * in random order. The walk stops as soon as the array is full.
+     * @param location The location from which to generate adjacencies.
+     * @param range How far around the location we should look
+     * @param free The array to fill, its length is the maximum number of locations wanted
+     * @return The number of free locations that were put into the array
+     */
+    public int freeAdjacentLocations(Location location, int range, Location[] free){
+        return freeAdjacentLocations(location, range, free, free.length);
+    }
+
+    /**
+     * Put free locations adjacent to the given location at the start of the given array,
+     * in random order. The walk stops as soon as max locations are found, so a reused
+     * buffer that is larger than needed can be passed.
+     * @param location The location from which to generate adjacencies.
+     * @param range How far around the location we should look
+     * @param free The array to fill, at least max long
+     * @param max The maximum number of locations wanted
+     * @return The number of free locations that were put into the array
+     */
+    public int freeAdjacentLocations(Location location, int range, Location[] free, int max){
+        if(location == null || max <= 0) {
+            return 0;
+        }
+        FreeCollector collector = freeCollectors.get();
+        collector.start(this, free, max);
+        walk(location.getRow(), location.getCol(), range, collector);
+        return collector.finish();
+    }
+
+    /**
+     * Walk the positions around the given one in random order, until the visitor asks to stop.
+     * Only positions within the grid are visited, the position itself is not.
+     * @param row The row to walk around.
+     * @param col The column to walk around.
+     * @param range How far around the position we should walk
+     * @param visitor The visitor that is called for every position
+     * @return The location at which the visitor stopped, or null if it visited every position.
+     */
+    public Location visitAdjacent(int row, int col, int range, NeighbourVisitor visitor){
+        long stop = walk(row, col, range, visitor);
+        return stop < 0 ? null : new Location((int) (stop / width), (int) (stop % width));
     }
 
-   
      /**
      * Return a shuffled list of locations adjacent to the given one.
      * The list will not include the location itself.
@@ -123,30 +420,183 @@ public class Field {
      */
     public List<Location> adjacentLocations(Location location, int range){
         // The list of locations to be returned.
-        List<Location> locations = new LinkedList<Location>();
+        final List<Location> locations = new LinkedList<Location>();
         if(location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for(int roffset = -range; roffset <= range; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -range; coffset <= range; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
-                }
-            }
-            
-            // Shuffle the list. Several other methods rely on the list
+            // The walk is already in a random order. Several other methods rely on the list
             // being in a random order.
-            Collections.shuffle(locations, rand);
+            walk(location.getRow(), location.getCol(), range, new NeighbourVisitor() {
+                public boolean visit(int row, int col){
+                    locations.add(new Location(row, col));
+                    return false;
+                }
+            });
         }
         return locations;
     }
 
+    /**
+     * The one walk every other walk of the field goes through: pick one of the shuffled
+     * orders of the range and one of the SYMMETRIES to turn it by, then visit the
+     * positions in that order, skipping those outside the grid.
+     * @param row The row to walk around.
+     * @param col The column to walk around.
+     * @param range How far around the position we should walk
+     * @param visitor The visitor that is called for every position
+     * @return The position row * width + col at which the visitor stopped, or -1 if it visited every position.
+     */
+    private long walk(int row, int col, int range, NeighbourVisitor visitor){
+        int[][] orders = offsetTable(range);
+        int pick = Randomizer.getRandom().nextInt(orders.length * SYMMETRIES);
+        int[] order = orders[pick / SYMMETRIES];
+        int symmetry = pick % SYMMETRIES;
+        for(int i = 0; i < order.length; i += 2) {
+            int nextRow = row + rowOffset(order, i, symmetry);
+            int nextCol = col + colOffset(order, i, symmetry);
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width
+                    && visitor.visit(nextRow, nextCol)) {
+                return (long) nextRow * width + nextCol;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Collects the free positions of a walk into an array, for freeAdjacentLocations.
+     * Every thread reuses one, so filling the array allocates nothing but the locations.
+     */
+    private static class FreeCollector implements NeighbourVisitor {
+        // The field that is walked.
+        private Field field;
+        // The array to fill, the number of locations wanted and the number found so far.
+        private Location[] free;
+        private int max, count;
+
+        /**
+         * Get ready for a walk.
+         * @param field The field that is walked
+         * @param free The array to fill
+         * @param max The number of locations wanted, more than 0
+         */
+        void start(Field field, Location[] free, int max){
+            this.field = field;
+            this.free = free;
+            this.max = max;
+            count = 0;
+        }
+
+        public boolean visit(int row, int col){
+            if(!field.store.isTaken(row, col)) {
+                free[count++] = new Location(row, col);
+            }
+            return count >= max;
+        }
+
+        /**
+         * Let go of the field and array of the walk.
+         * @return The number of locations found
+         */
+        int finish(){
+            field = null;
+            free = null;
+            return count;
+        }
+    }
+
+    /**
+     * Get the precomputed shuffled orders in which the positions around a location
+     * can be walked. A walk picks one of them and one of the SYMMETRIES to turn it by.
+     * Over all orders every offset is at every place in the order equally often,
+     * and the symmetries keep it that way, so no direction is preferred.
+     * @param range How far around the location the orders reach
+     * @return Orders of row and column offsets, stored as pairs: {row, col, row, col, ...}
+     */
+    private static int[][] offsetTable(int range){
+        int[][] orders = range < offsetTables.length ? offsetTables[range] : null;
+        if(orders == null) {
+            orders = buildOffsetTable(range);
+        }
+        return orders;
+    }
+
+    /**
+     * @param order An order of offset pairs
+     * @param i The index of the row offset of a pair
+     * @param symmetry The symmetry to turn the order by
+     * @return The row offset of the pair after turning it.
+     */
+    private static int rowOffset(int[] order, int i, int symmetry){
+        int offset = (symmetry & TRANSPOSE) != 0 ? order[i + 1] : order[i];
+        return (symmetry & FLIP_ROWS) != 0 ? -offset : offset;
+    }
+
+    /**
+     * @param order An order of offset pairs
+     * @param i The index of the row offset of a pair
+     * @param symmetry The symmetry to turn the order by
+     * @return The column offset of the pair after turning it.
+     */
+    private static int colOffset(int[] order, int i, int symmetry){
+        int offset = (symmetry & TRANSPOSE) != 0 ? order[i] : order[i + 1];
+        return (symmetry & FLIP_COLS) != 0 ? -offset : offset;
+    }
+
+    /**
+     * Build the shuffled orders for the given range and remember them for later walks.
+     * A few random shuffles are each relabelled n times, the k-th time replacing every
+     * offset by the one k further in the list of all n offsets. That puts every offset
+     * at every place exactly once per shuffle.
+     * @param range How far around a location the orders reach
+     * @return At least PERMUTATIONS shuffled orders of all offsets within the range, excluding 0,0
+     */
+    private static synchronized int[][] buildOffsetTable(int range){
+        if(range < offsetTables.length && offsetTables[range] != null) {
+            return offsetTables[range];
+        }
+        int side = 2 * range + 1;
+        int n = side * side - 1;
+        int[] offsets = new int[2 * n];
+        int i = 0;
+        for(int roffset = -range; roffset <= range; roffset++) {
+            for(int coffset = -range; coffset <= range; coffset++) {
+                if(roffset != 0 || coffset != 0) {
+                    offsets[i++] = roffset;
+                    offsets[i++] = coffset;
+                }
+            }
+        }
+        // The tables are shared by every run, so they are shuffled with a fixed seed.
+        Random rand = new Random(range);
+        int shuffles = (PERMUTATIONS + n - 1) / n;
+        int[][] orders = new int[shuffles * n][];
+        int[] shuffle = new int[n];
+        for(int base = 0; base < shuffles; base++) {
+            // Fisher-Yates over the indexes of the offsets.
+            for(int k = 0; k < n; k++) {
+                shuffle[k] = k;
+            }
+            for(int k = n - 1; k > 0; k--) {
+                int other = rand.nextInt(k + 1);
+                int index = shuffle[k];
+                shuffle[k] = shuffle[other];
+                shuffle[other] = index;
+            }
+            for(int shift = 0; shift < n; shift++) {
+                int[] order = new int[2 * n];
+                for(int k = 0; k < n; k++) {
+                    int index = (shuffle[k] + shift) % n;
+                    order[2 * k] = offsets[2 * index];
+                    order[2 * k + 1] = offsets[2 * index + 1];
+                }
+                orders[base * n + shift] = order;
+            }
+        }
+        // Publish a new table array so readers never see a partially filled one.
+        int[][][] tables = Arrays.copyOf(offsetTables, Math.max(offsetTables.length, range + 1));
+        tables[range] = orders;
+        offsetTables = tables;
+        return orders;
+    }
+
     /**
      * Return the depth of the field.
      * @return The depth of the field.
@@ -168,13 +618,39 @@ public class Field {
      * @return A random free location
      */
     public Location getFreeRandomLocation(){
-        List<Location> locations = new ArrayList<Location>();
-        for(int r = 0; r < field.length; r++){
-            for(int c = 0; c < field[r].length; c++){
-                if(field[r][c] == null) locations.add(new Location(r, c));
+        if(freeCount == 0) {
+            return null;
+        }
+        // Pick the n-th free position, every free position is equally likely.
+        long n = Randomizer.getRandom().nextLong(freeCount);
+
+        // Descend the Fenwick tree to the row that holds it.
+        int row = 0;
+        for(int step = Integer.highestOneBit(depth); step != 0; step >>>= 1) {
+            int next = row + step;
+            if(next <= depth && freeTree[next] <= n) {
+                row = next;
+                n -= freeTree[next];
             }
         }
-        return locations.isEmpty() ? null : locations.get(rand.nextInt(locations.size()));
+
+        // Select the bit within the row, a word at a time.
+        for(int w = 0; w < wordsPerRow; w++) {
+            long free = ~store.getOccupiedWord(row, w);
+            int bits = Math.min(64, width - w * 64);
+            if(bits < 64) {
+                free &= (1L << bits) - 1;
+            }
+            int count = Long.bitCount(free);
+            if(n < count) {
+                for(int i = 0; i < n; i++) {
+                    free &= free - 1;
+                }
+                return new Location(row, w * 64 + Long.numberOfTrailingZeros(free));
+            }
+            n -= count;
+        }
+        return null;
     }
 
     /**
@@ -6,16 +6,16 @@ import java.awt.event.MouseAdapter;
  */
 public class FieldControl extends MouseAdapter {
     private FieldView fieldView;
-    private Field field;
+    private SimulationControl simulationControl;
 
     /**
      * Constructor
      * @param fieldView The view that renders the field
-     * @param field The model that contains field data
+     * @param simulationControl The control that hands the roads to the simulation
      */
-    public FieldControl(FieldView fieldView, Field field) {
+    public FieldControl(FieldView fieldView, SimulationControl simulationControl) {
         this.fieldView = fieldView;
-        this.field = field;
+        this.simulationControl = simulationControl;
 
         this.fieldView.addMouseListener(this);
         this.fieldView.addMouseMotionListener(this);
@@ -23,19 +23,12 @@ public class FieldControl extends MouseAdapter {
 
     /**
      * Puts a road on the given location, but only if there's not a hunter on it. Animals on the given location
-     * are killed.
+     * are killed. The field is only changed by the simulator thread, so the road is placed there, between steps.
      * @param location The destination location
      */
     public void addRoad(Location location){
         if(location != null){
-            FieldSprite sprite = field.getSpriteAt(location);
-            if(!(sprite instanceof Hunter)) {
-                if(sprite instanceof Animal){
-                    ((Animal) sprite).setDead();
-                }
-                field.clear(location);
-                field.setLocation(location, new Road(field, location));
-            }
+            simulationControl.addRoad(location);
         }
     }
 
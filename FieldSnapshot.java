@@ -0,0 +1,87 @@
+/**
+ * A copy of the species code and mark bit of every position in a field,
+ * taken at the end of a step. Views draw from a snapshot, so they never
+ * have to touch the field while the simulation is changing it.
+ */
+public class FieldSnapshot {
+    // The depth and width of the field.
+    private final int depth, width;
+    // The species code and mark bit of every position, stored row after row.
+    private final int[] cells;
+    // The step at which the snapshot was taken.
+    private int step;
+    // Increases with every capture, used to tell a newer snapshot from an older one.
+    private long sequence;
+
+    /**
+     * Create an empty snapshot for a field of the given dimensions.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public FieldSnapshot(int depth, int width){
+        this.depth = depth;
+        this.width = width;
+        cells = new int[depth * width];
+    }
+
+    /**
+     * Copy the current state of the field into this snapshot.
+     * @param field The field to copy.
+     * @param step The step the field is at.
+     * @param sequence The sequence number of this capture.
+     */
+    public void capture(Field field, int step, long sequence){
+        field.copyCells(cells);
+        this.step = step;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Copy the positions of the current frame of a replay into this snapshot.
+     * @param replay The replay, of a field of the same dimensions.
+     * @param sequence The sequence number of this capture.
+     */
+    public void capture(ReplayReader replay, long sequence){
+        replay.copyCells(cells);
+        this.step = (int) replay.getStep(replay.getFrame());
+        this.sequence = sequence;
+    }
+
+    /**
+     * Return the species code and mark bit at the given position.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The species code, possibly combined with Field.MARK.
+     */
+    public int getCell(int row, int col){
+        return cells[row * width + col];
+    }
+
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth(){
+        return depth;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth(){
+        return width;
+    }
+
+    /**
+     * @return The step at which the snapshot was taken.
+     */
+    public int getStep(){
+        return step;
+    }
+
+    /**
+     * @return The sequence number of the capture, higher is newer.
+     */
+    public long getSequence(){
+        return sequence;
+    }
+}
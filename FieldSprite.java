@@ -5,8 +5,8 @@ public abstract class FieldSprite {
     protected Location location;
     // The Unit's field.
     protected Field field;
-    // The unit's color
-    protected Color markColor;
+    // The id of the unit, it keys the random numbers the unit draws.
+    private long id;
 
     /**
      * Create a FieldSprite on the given Field and Location
@@ -14,10 +14,37 @@ public abstract class FieldSprite {
      * @param location The location to set the Field
      */
     public FieldSprite(Field field, Location location){
+        init(field, location);
+    }
+
+    /**
+     * Put the sprite on the given Field and Location as if it was just created, with a new id.
+     * Used by the constructor, and to bring back a sprite that is recycled.
+     * @param field The field to put the sprite on
+     * @param location The location on the field
+     */
+    protected void init(Field field, Location location){
         this.field = field;
         this.location = location;
+        // Drawn from the stream of whoever creates the sprite, so it's the same on every run with the same seed
+        id = Randomizer.getRandom().nextLong();
         setLocation(location);
-        markColor = Color.gray; //Default color for items that are not colored
+    }
+
+    /**
+     * Returns the id of this fieldunit
+     * @return the id of this fieldunit
+     */
+    public long getId(){
+        return id;
+    }
+
+    /**
+     * Give this fieldunit the id it had when a checkpoint was written
+     * @param id The id to restore
+     */
+    public void restoreId(long id){
+        this.id = id;
     }
 
     /**
@@ -38,6 +65,12 @@ public abstract class FieldSprite {
         this.location = location;
     }
 
+    /**
+     * Returns the species code the field stores for this sprite
+     * @return One of the codes defined in Species
+     */
+    public abstract int getSpecies();
+
     /**
      * Reveals if the sprite should be marked while it's drawn. Default is false
      * @return True if the sprite should be marked
@@ -51,6 +84,6 @@ public abstract class FieldSprite {
      * @return The Color for this sprite
      */
     public Color getMarkColor(){
-        return markColor;
+        return Species.getColor(getSpecies());
     }
 }
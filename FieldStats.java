@@ -1,95 +1,39 @@
-import java.util.HashMap;
-import java.util.Observable;
-
 /**
- * This class collects and provides some statistical data on the state 
- * of a field. It is flexible: it will create and maintain a counter 
- * for any class of object that is found within the field.
+ * This class provides some statistical data on the state of a field.
+ * The field keeps a count for every species up to date as sprites are
+ * placed and cleared, so none of the statistics have to scan the field.
  */
-public class FieldStats extends Observable {
-    // Counters for each type of entity (fox, rabbit, etc.) in the simulation.
-    private HashMap<Class, Counter> counters;
-    // Whether the counters are currently up to date.
-    private boolean countsValid;
+public class FieldStats {
+    // The field the statistics are about.
+    private Field field;
 
     /**
      * Construct a FieldStats object.
+     * @param field The field to provide statistics for.
      */
-    public FieldStats()
+    public FieldStats(Field field)
     {
-        // Set up a collection for counters for each type of animal that
-        // we might find
-        counters = new HashMap<Class, Counter>();
-        countsValid = true;
+        this.field = field;
     }
 
     /**
-     * Returns the population counters
-     * @return A map with a counter for each actor class
+     * Get the number of sprites of one species in the field.
+     * @param species The species code.
+     * @return The number of sprites of that species.
      */
-    public HashMap<Class, Counter> getCurrentPopulationCounters(){
-        return counters;
+    public long getCount(int species){
+        return field.getCount(species);
     }
 
      /**
      * Get details of what is in the field.
-     * @return A string describing what is in the field.
+     * @param field The field to get the population of.
+     * @param name The name of the species, e.g. "Fox".
+     * @return The number of sprites of that species.
      */
-    public  int getPopulationNumbers(Field field,String name){
-        
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
-            if (name.equals(info.getName()))
-            {
-            return info.getCount();
-            }
-            
-        }
-        return 0;
-    }
-
-    /**
-     * Invalidate the current set of statistics; reset all 
-     * counts to zero.
-     */
-    public void reset()
-    {
-        countsValid = false;
-        for(Class key : counters.keySet()) {
-            Counter count = counters.get(key);
-            count.reset();
-        }
-        notifyObservers();
-    }
-
-    /**
-     * Increment the count for one class of animal.
-     * @param animalClass The class of animal to increment.
-     */
-    public void incrementCount(Class animalClass)
-    {
-        Counter count = counters.get(animalClass);
-        if(count == null) {
-            // We do not have a counter for this species yet.
-            // Create one.
-            count = new Counter(animalClass.getName());
-            counters.put(animalClass, count);
-        }
-       
-        count.increment();
-        notifyObservers();
-    }
-
-    /**
-     * Indicate that an animal count has been completed.
-     */
-    public void countFinished()
-    {
-        countsValid = true;
-        notifyObservers();
+    public  long getPopulationNumbers(Field field,String name){
+        int species = Species.forName(name);
+        return species == Species.EMPTY ? 0 : field.getCount(species);
     }
 
     /**
@@ -101,48 +45,11 @@ public class FieldStats extends Observable {
     {
         // How many counts are non-zero.
         int nonZero = 0;
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        for(Class key : counters.keySet()) {
-            if(Animal.class.isAssignableFrom(key)){
-                Counter info = counters.get(key);
-                if(info.getCount() > 0) {
-                    nonZero++;
-                }
+        for(int species = 0; species < Species.COUNT; species++) {
+            if(Species.isAnimal(species) && field.getCount(species) > 0) {
+                nonZero++;
             }
         }
         return nonZero > 1;
     }
-    
-    /**
-     * Generate counts of the number of foxes and rabbits.
-     * These are not kept up to date as foxes and rabbits
-     * are placed in the field, but only when a request
-     * is made for the information.
-     * @param field The field to generate the stats for.
-     */
-    private void generateCounts(Field field)
-    {
-        reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object actor = field.getSpriteAt(row, col);
-                if(actor != null) {
-                    incrementCount(actor.getClass());
-                    
-                }
-            }
-        }
-        countsValid = true;
-    }
-
-    /**
-     * Overrides the notify to change all displayed data
-     */
-    public void notifyObservers() {
-        setChanged();
-        super.notifyObservers();
-    }
 }
-
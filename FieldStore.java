@@ -0,0 +1,65 @@
+/**
+ * Holds the contents of the positions of a field: the cell value (species code
+ * and mark bit) and the sprite of every position, and a bitset of the positions
+ * that are taken. The Field keeps the counts and the index of free positions on
+ * top of a store, so a store only has to remember what was set.
+ */
+public interface FieldStore {
+
+    /**
+     * Empty every position.
+     */
+    public abstract void clear();
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return The species code and mark bit of the position, Species.EMPTY if it's free
+     */
+    public abstract int getCell(int row, int col);
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return The sprite at the position, null if it's free
+     */
+    public abstract FieldSprite getSprite(int row, int col);
+
+    /**
+     * Store a cell value and sprite, and mark the position taken unless the species is EMPTY.
+     * @param row The row of the position
+     * @param col The column of the position
+     * @param cell The species code, possibly with Field.MARK set
+     * @param sprite The sprite, null when the position is cleared
+     */
+    public abstract void set(int row, int col, int cell, FieldSprite sprite);
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return True if the position is taken
+     */
+    public abstract boolean isTaken(int row, int col);
+
+    /**
+     * Get 64 bits of the occupancy bitset of a row, bit i is column word * 64 + i.
+     * Bits beyond the width of the field are 0.
+     * @param row The row
+     * @param word The index of the word within the row
+     * @return The bits of the word, set where a position is taken
+     */
+    public abstract long getOccupiedWord(int row, int word);
+
+    /**
+     * Copy the cell value of every position, row after row. Only meant for fields
+     * small enough to be drawn.
+     * @param destination An array of at least depth * width cells
+     */
+    public abstract void copyCells(int[] destination);
+
+    /**
+     * Whether threads may change different rows of the store at the same time.
+     * @return True if the store can be updated in parallel, see Field.beginParallelUpdate
+     */
+    public abstract boolean supportsParallelUpdate();
+}
@@ -1,5 +1,7 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
 /**
  * Provide a graphical view of a rectangular field. This is
@@ -8,11 +10,19 @@ import java.awt.*;
  * component displays the field.
  * This is rather advanced GUI stuff - you can ignore this
  * for your project if you like.
+ *
+ * The field is drawn into an image with one pixel per position, by writing the
+ * color of every position straight into the pixels of the image. The image is
+ * scaled to the size of the component when it is painted.
  */
 public class FieldView extends JPanel{
 
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = Color.white;
+    // Colors mixed into the color of marked actors, e.g. infected rabbits
+    private static final Color MARK_COLOR = Color.red;
+    // The RGB color of every cell of a snapshot, indexed by species code and mark bit
+    private static final int[] CELL_COLORS = createCellColors();
 
     // Sizes used to mark infected actors
     private static final int MIN_MARK_SIZE = 4;
@@ -22,8 +32,9 @@ public class FieldView extends JPanel{
     // fields used to display the FieldView properly
     private int gridWidth, gridHeight;
     Dimension size;
-    private Graphics g;
-    private Image fieldImage;
+    // The image the field is drawn in, one pixel per position, and its pixels
+    private BufferedImage fieldImage;
+    private int[] pixels;
     private int width, height;
     private int xOffset, yOffset;
     private int markSize;
@@ -41,6 +52,32 @@ public class FieldView extends JPanel{
         size = new Dimension(0, 0);
         markSize = PREFERRED_MARK_SIZE;
         resized = true;
+        fieldImage = new BufferedImage(gridWidth, gridHeight, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) fieldImage.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Work out the color of every cell a snapshot can hold. Marked actors are drawn
+     * halfway between the color of their species and the mark color.
+     * @return The RGB colors, indexed by the species code and mark bit of a cell
+     */
+    private static int[] createCellColors(){
+        int[] colors = new int[(Field.SPECIES_MASK | Field.MARK) + 1];
+        int empty = EMPTY_COLOR.getRGB();
+        for(int cell = 0; cell < colors.length; cell++){
+            int species = cell & Field.SPECIES_MASK;
+            if(species == Species.EMPTY || species >= Species.COUNT){
+                colors[cell] = empty;
+            } else if((cell & Field.MARK) != 0){
+                Color color = Species.getColor(species);
+                colors[cell] = new Color((color.getRed() + MARK_COLOR.getRed()) / 2,
+                        (color.getGreen() + MARK_COLOR.getGreen()) / 2,
+                        (color.getBlue() + MARK_COLOR.getBlue()) / 2).getRGB();
+            } else {
+                colors[cell] = Species.getColor(species).getRGB();
+            }
+        }
+        return colors;
     }
 
     /**
@@ -72,7 +109,8 @@ public class FieldView extends JPanel{
 
     /**
      * Prepare for a new round of painting. Since the component
-     * may be resized, compute the scaling factor again.
+     * may be resized, compute the scaling factor again. The image
+     * itself keeps its size, it is scaled when it is painted.
      */
     public void preparePaint(){
         Dimension currentSize = getSize();
@@ -90,47 +128,27 @@ public class FieldView extends JPanel{
         yOffset = (currentSize.height-height)/2;
 
         size = getSize();
-        fieldImage = createImage(width, height);
-        g = fieldImage.getGraphics();
     }
 
     /**
-     * Paint on grid location on this field in a given color.
-     * @param x the x position
-     * @param y the y position
-     * @param color the color
-     * @param mark Indicates if the square should be marked
+     * Draws every position of a snapshot of the field, marked actors in a color of their own
+     * @param snapshot the snapshot of the field to draw, of a field of the size of this view
      */
-    public void drawMark(int x, int y, Color color, boolean mark)
-    {
-        g.setColor(color);
-        g.fillRect((x * markSize), (y * markSize), markSize-1, markSize-1);
-        if(mark){
-            g.setColor(Color.red);
-            g.fillRect((x * markSize) + (markSize/3), (y * markSize) + (markSize/3), markSize/3, markSize/3);
+    public void drawMarks(FieldSnapshot snapshot) {
+        int pixel = 0;
+        for(int row = 0; row < gridHeight; row++) {
+            for(int col = 0; col < gridWidth; col++) {
+                pixels[pixel++] = CELL_COLORS[snapshot.getCell(row, col) & (Field.SPECIES_MASK | Field.MARK)];
+            }
         }
     }
 
     /**
-     * Draws a small mark inside an actor
-     * @param field the field to draw the mark on
-     * @param stats to recalculate the stats
+     * Check if the component changed size since it was last prepared for painting
+     * @return True if the field has to be painted again to fit the new size
      */
-    public void drawMarks(Field field, FieldStats stats) {
-        stats.reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                FieldSprite sprite = field.getSpriteAt(row, col);
-                if(sprite != null) {
-                    stats.incrementCount(sprite.getClass());
-                    boolean drawMark = sprite instanceof Animal && sprite.mark();
-                    drawMark(col, row, sprite.getMarkColor(), drawMark);
-                } else {
-                    drawMark(col, row, EMPTY_COLOR, false);
-                }
-            }
-        }
-        stats.countFinished();
+    public boolean isResized(){
+        return !getSize().equals(size);
     }
 
     /**
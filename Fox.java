@@ -1,6 +1,5 @@
 import java.util.List;
 import java.util.Random;
-import java.awt.*;
 
 /**
  * A simple model of a fox.
@@ -9,28 +8,23 @@ import java.awt.*;
  * @author David J. Barnes and Michael Kolling
  * @version 2008.03.30
  */
-public class Fox extends Animal {
-    // Characteristics shared by all foxes (static fields).
+public class Fox extends Animal implements NeighbourVisitor {
+    // The default characteristics of foxes, a run reads its own from its SimulationConfig.
 
     // The age at which a fox can start to breed.
-	public static  int BREEDING_AGE = 10;
+	public static final int BREEDING_AGE = 10;
     // The age to which a fox can live.
-	public static  int MAX_AGE = 150;
+	public static final int MAX_AGE = 150;
     // The likelihood of a fox breeding.
-	public static  double BREEDING_PROBABILITY = 0.35;
+	public static final double BREEDING_PROBABILITY = 0.35;
     // The maximum number of births.
-	public static  int MAX_LITTER_SIZE = 5;
+	public static final int MAX_LITTER_SIZE = 5;
     // The food value of a single rabbit. In effect, this is the
     // number of steps a fox can go before it has to eat again.
-	public static  int RABBIT_FOOD_VALUE = 7;
-    // A shared random number generator to control breeding.
-    private static final Random rand = Randomizer.getRandom();
+	public static final int RABBIT_FOOD_VALUE = 7;
     
-    // Individual characteristics (instance fields).
-    // The fox's age.
-    private int age;
-    // The fox's food level, which is increased by eating rabbits.
-    private int foodLevel;
+    // Individual characteristics (age and food level) are kept in the AnimalStore,
+    // together with the parameters of the run.
 
     /**
      * Create a fox. A fox can be created as a new born (age zero
@@ -43,27 +37,54 @@ public class Fox extends Animal {
     public Fox(boolean randomAge, Field field, Location location)
     {
         super(field, location);
-        markColor = Color.blue;
+        initState(randomAge);
+    }
+
+    /**
+     * Create a fox, reviving a dead one of the same field when there is one.
+     * 
+     * @param randomAge If true, the fox will have a random age.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     * @return The new fox.
+     */
+    public static Fox create(boolean randomAge, Field field, Location location)
+    {
+        Fox fox = (Fox) field.getStore(Species.FOX).reuse();
+        if(fox == null) {
+            return new Fox(randomAge, field, location);
+        }
+        fox.init(field, location);
+        fox.initState(randomAge);
+        return fox;
+    }
+
+    /**
+     * Set the state of a fox that was just put on the field.
+     * @param randomAge If true, the fox will have a random age.
+     */
+    private void initState(boolean randomAge)
+    {
+        Random rand = Randomizer.getRandom();
+        SpeciesParameters parameters = store.getParameters();
+        int rabbitFoodValue = parameters.getFoodValue(Species.RABBIT);
         if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
-            foodLevel = rand.nextInt(RABBIT_FOOD_VALUE);
+            store.setAge(slot, rand.nextInt(parameters.getMaxAge()));
+            store.setFood(slot, rand.nextInt(rabbitFoodValue));
         }
         else {
-            age = 0;
-            foodLevel = RABBIT_FOOD_VALUE;
+            store.setFood(slot, rabbitFoodValue);
         }
     }
     
     /**
      * This is what the fox does most of the time: it hunts for
-     * rabbits. In the process, it might breed, die of hunger,
-     * or die of old age.
+     * rabbits. In the process, it might breed. Aging and
+     * hunger are applied to all foxes at once, see AnimalStore.growOlder.
      * @param newFoxes A list to add newly born foxes to.
      */
     public void act(List<Animal> newFoxes)
     {
-        incrementAge();
-        incrementHunger();
         if(isAlive()) {
             giveBirth(newFoxes);            
             // Move towards a source of food if found.
@@ -84,28 +105,6 @@ public class Fox extends Animal {
         }
     }
 
-    /**
-     * Increase the age. This could result in the fox's death.
-     */
-    private void incrementAge()
-    {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
-        }
-    }
-    
-    /**
-     * Make this fox more hungry. This could result in the fox's death.
-     */
-    private void incrementHunger()
-    {
-        foodLevel--;
-        if(foodLevel <= 0) {
-            setDead();
-        }
-    }
-    
     /**
      * Tell the fox to look for rabbits adjacent to its current location.
      * Only the first live rabbit is eaten.
@@ -113,22 +112,19 @@ public class Fox extends Animal {
      */
     private Location findFood()
     {
-        Location where;
-        Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation(),1);
-        for (Location anAdjacent : adjacent) {
-            where = anAdjacent;
-            FieldSprite sprite = field.getSpriteAt(where);
-            if (sprite instanceof Rabbit) {
-                Rabbit rabbit = (Rabbit) sprite;
-                if (rabbit.isAlive()) {
-                    rabbit.setDead();
-                    foodLevel = RABBIT_FOOD_VALUE;
-                    return where;
-                }
-            }
-        }
-        return null;
+        Location location = getLocation();
+        return getField().visitAdjacent(location.getRow(), location.getCol(), 1, this);
+    }
+
+    /**
+     * Eat the rabbit at the visited position, if there is a live one.
+     * @param row The row of the visited position
+     * @param col The column of the visited position
+     * @return True if a rabbit was eaten, which ends the search for food.
+     */
+    public boolean visit(int row, int col)
+    {
+        return eat(row, col);
     }
     
     /**
@@ -139,14 +135,16 @@ public class Fox extends Animal {
     private void giveBirth(List<Animal> newFoxes)
     {
         // New foxes are born into adjacent locations.
-        // Get a list of adjacent free locations.
-        Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation(),1);
+        // Only look for free locations when there is something to be born.
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Fox young = new Fox(false, field, loc);
-            newFoxes.add(young);
+        if(births > 0) {
+            Field field = getField();
+            Location[] free = litterBuffer(births);
+            int count = field.freeAdjacentLocations(getLocation(), 1, free, births);
+            for(int b = 0; b < count; b++) {
+                Fox young = Fox.create(false, field, free[b]);
+                newFoxes.add(young);
+            }
         }
     }
         
@@ -158,8 +156,10 @@ public class Fox extends Animal {
     private int breed()
     {
         int births = 0;
-        if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
-            births = rand.nextInt(MAX_LITTER_SIZE) + 1;
+        Random rand = Randomizer.getRandom();
+        SpeciesParameters parameters = store.getParameters();
+        if(canBreed() && rand.nextDouble() <= parameters.getBreedingProbability()) {
+            births = rand.nextInt(parameters.getMaxLitterSize()) + 1;
         }
         return births;
     }
@@ -170,7 +170,14 @@ public class Fox extends Animal {
      */
     private boolean canBreed()
     {
-        return age >= BREEDING_AGE;
+        return store.getAge(slot) >= store.getParameters().getBreedingAge();
     }
-}
 
+    /**
+     * @return The species code of a fox.
+     */
+    public int getSpecies()
+    {
+        return Species.FOX;
+    }
+}
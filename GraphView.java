@@ -1,6 +1,5 @@
 import java.awt.Color;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.List;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -17,7 +16,7 @@ import org.jfree.ui.ApplicationFrame;
 /**
  * Creates a graph representation of the population for each step
  */
-public class GraphView extends ApplicationFrame implements Observer {
+public class GraphView extends ApplicationFrame implements StepListener {
 	
 	public ChartPanel panel;
 	private FieldStats stats;
@@ -25,6 +24,8 @@ public class GraphView extends ApplicationFrame implements Observer {
 	private final XYSeries rabbitSeries = new XYSeries("Rabbits");
     private final XYSeries foxSeries = new XYSeries("Foxes");
     private final XYSeries bearSeries = new XYSeries("Bears");
+    // The last step added to the graph, a step is never added twice
+    private int lastStep;
 
     /**
      * Creates a graphView
@@ -34,9 +35,29 @@ public class GraphView extends ApplicationFrame implements Observer {
      */
     public GraphView(final String title,FieldStats stats,Field field) {
 
-        super(title);
+        this(title);
         this.stats=stats;
         this.field=field;
+
+        //Define the values which hold the population numbers for each animal in the graph
+    	long rabbit = stats.getPopulationNumbers(field,"Rabbit");
+        long fox = stats.getPopulationNumbers(field,"Fox");
+        long bear = stats.getPopulationNumbers(field,"Bear");
+
+        //Add each value to the appropriate serie
+        rabbitSeries.add(0, rabbit);
+        foxSeries.add(0, fox);
+        bearSeries.add(0, bear);
+    }
+
+    /**
+     * Creates an empty graphView, filled only by published steps, e.g. those of a replay
+     *
+     * @param title The frame title.
+     */
+    public GraphView(final String title) {
+
+        super(title);
         
         final XYDataset dataset = createDataset();
         final JFreeChart chart = createChart(dataset);
@@ -53,16 +74,6 @@ public class GraphView extends ApplicationFrame implements Observer {
      * @return The dataset.
      */
     private XYDataset createDataset() {
-        //Define the values which hold the population numbers for each animal in the graph
-    	int rabbit = stats.getPopulationNumbers(field,"Rabbit");
-        int fox = stats.getPopulationNumbers(field,"Fox");
-        int bear = stats.getPopulationNumbers(field,"Bear");
-
-        //Add each value to the appropriate serie
-        rabbitSeries.add(0, rabbit);
-        foxSeries.add(0, fox);
-        bearSeries.add(0, bear);
-
         //Add the series to the dataset
         final XYSeriesCollection dataset = new XYSeriesCollection();
         dataset.addSeries(rabbitSeries);
@@ -121,25 +132,50 @@ public class GraphView extends ApplicationFrame implements Observer {
     }
 
     /**
-     * Method is called by observable object, in this case the Simulation object when it steps
-     * @param o
-     * @param arg
+     * Method is called by the Simulation object when it has published a step
+     * @param snapshot The state of the simulation at the end of the step
      */
-    public void update(Observable o, Object arg) {
+    public void stepCompleted(StepSnapshot snapshot) {
         //We need the step in this method
-        int step = ((Simulation)o).getStep();
+        int step = snapshot.getStep();
 
         if(step == 0){ // If step is set to 0 then we want to reset the graph
             rabbitSeries.clear();
             foxSeries.clear();
             bearSeries.clear();
-        } else { // If it's not 0 then continue the graph 
-            int rabbit = stats.getPopulationNumbers(field,"Rabbit");
-            int fox = stats.getPopulationNumbers(field,"Fox");
-            int bear = stats.getPopulationNumbers(field,"Bear");
-            rabbitSeries.add(step,rabbit);
-            foxSeries.add(step,fox);
-            bearSeries.add(step,bear);
+            lastStep = 0;
+        } else { // A new step continues the graph
+            addStep(snapshot, true);
+        }
+    }
+
+    /**
+     * Continue the graph with many steps at once, e.g. a whole run of a replay.
+     * Every series tells the chart about the change only once, instead of once per step,
+     * because the chart looks at all points again whenever it is told.
+     * @param snapshots The states at the end of the steps, in the order of the steps
+     */
+    public void addSteps(List<StepSnapshot> snapshots) {
+        for(StepSnapshot snapshot : snapshots){
+            addStep(snapshot, false);
+        }
+        rabbitSeries.fireSeriesChanged();
+        foxSeries.fireSeriesChanged();
+        bearSeries.fireSeriesChanged();
+    }
+
+    /**
+     * Add the population of a step to the series, unless the step is already in the graph
+     * @param snapshot The state of the simulation at the end of the step
+     * @param notify True to tell the chart about every point right away
+     */
+    private void addStep(StepSnapshot snapshot, boolean notify) {
+        int step = snapshot.getStep();
+        if(step > lastStep) {
+            rabbitSeries.add(step, snapshot.getCount(Species.RABBIT), notify);
+            foxSeries.add(step, snapshot.getCount(Species.FOX), notify);
+            bearSeries.add(step, snapshot.getCount(Species.BEAR), notify);
+            lastStep = step;
         }
     }
 }
@@ -0,0 +1,246 @@
+import java.io.*;
+
+/**
+ * Runs a simulation without any user interface, as fast as the machine allows.
+ * The population is written as comma separated values, every few steps and once
+ * more at the end of the run.
+ *
+ * Usage: java HeadlessSimulation [option value]...
+ *   -depth      depth of the field (default 60)
+ *   -width      width of the field (default 80)
+ *   -store      dense, chunked or mapped (default: dense up to Field.DENSE_LIMIT positions, chunked above)
+ *   -map        the file a mapped store keeps the cells in (default: a temporary file)
+ *   -steps      the number of steps to run (default 1000)
+ *   -seed       seed for the random generator (default: a random seed, which is reported)
+ *   -rabbits    percentage of positions starting with a rabbit (default 8)
+ *   -foxes      percentage of positions starting with a fox (default 2)
+ *   -bears      percentage of positions starting with a bear (default 0.05)
+ *   -hunters    the number of hunters (default 1)
+ *   -threads    the number of threads a step may use (default 1)
+ *   -report     write the population every this many steps, 0 for only the end (default 100)
+ *   -out        file to write to (default: standard output)
+ *   -resume     checkpoint to continue from instead of populating, -steps more steps are run;
+ *               -depth and -width must match the checkpoint
+ *   -save       checkpoint to write at the end of the run
+ *   -stats      file to write a record of every step to, as CSV if the name ends in .csv,
+ *               otherwise in the columnar binary layout of StatsExporter
+ *   -record     replay log to record every step to, see ReplayRecorder
+ */
+public class HeadlessSimulation {
+    private int depth = 60;
+    private int width = 80;
+    private String store = null;
+    private String map = null;
+    private int steps = 1000;
+    private Long seed = null;
+    private double rabbits = 8;
+    private double foxes = 2;
+    private double bears = 0.05;
+    private double hunters = 1;
+    private int threads = 1;
+    private int report = 100;
+    private String out = null;
+    private String resume = null;
+    private String save = null;
+    private String stats = null;
+    private String record = null;
+
+    /**
+     * Start a headless run with the given command line options
+     * @param args The command line options
+     */
+    public static void main(String[] args) throws IOException {
+        HeadlessSimulation simulation = new HeadlessSimulation();
+        if(!simulation.parse(args)){
+            System.err.println("Usage: java HeadlessSimulation [-depth n] [-width n] [-store dense|chunked|mapped] [-map file] [-steps n] [-seed n]"
+                    + " [-rabbits %] [-foxes %] [-bears %] [-hunters n] [-threads n] [-report n] [-out file]"
+                    + " [-resume file] [-save file] [-stats file] [-record file]");
+            System.exit(1);
+        }
+        simulation.run();
+    }
+
+    /**
+     * Read the options from the command line
+     * @param args The command line options
+     * @return false if the options could not be understood
+     */
+    private boolean parse(String[] args){
+        if(args.length % 2 != 0){
+            return false;
+        }
+        try {
+            for(int i = 0; i < args.length; i += 2){
+                String option = args[i];
+                String value = args[i + 1];
+                if("-depth".equals(option)){
+                    depth = Integer.parseInt(value);
+                } else if("-width".equals(option)){
+                    width = Integer.parseInt(value);
+                } else if("-store".equals(option)){
+                    store = value;
+                } else if("-map".equals(option)){
+                    map = value;
+                } else if("-steps".equals(option)){
+                    steps = Integer.parseInt(value);
+                } else if("-seed".equals(option)){
+                    seed = Long.parseLong(value);
+                } else if("-rabbits".equals(option)){
+                    rabbits = Double.parseDouble(value);
+                } else if("-foxes".equals(option)){
+                    foxes = Double.parseDouble(value);
+                } else if("-bears".equals(option)){
+                    bears = Double.parseDouble(value);
+                } else if("-hunters".equals(option)){
+                    hunters = Double.parseDouble(value);
+                } else if("-threads".equals(option)){
+                    threads = Integer.parseInt(value);
+                } else if("-report".equals(option)){
+                    report = Integer.parseInt(value);
+                } else if("-out".equals(option)){
+                    out = value;
+                } else if("-resume".equals(option)){
+                    resume = value;
+                } else if("-save".equals(option)){
+                    save = value;
+                } else if("-stats".equals(option)){
+                    stats = value;
+                } else if("-record".equals(option)){
+                    record = value;
+                } else {
+                    return false;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return depth > 0 && width > 0 && steps >= 0 && threads > 0 && report >= 0
+                && (store == null || "dense".equals(store) || "chunked".equals(store) || "mapped".equals(store));
+    }
+
+    /**
+     * Run the simulation until the number of steps is reached or it is no longer viable
+     */
+    private void run() throws IOException {
+        Field field;
+        if("dense".equals(store)){
+            field = new Field(depth, width, new DenseFieldStore(depth, width));
+        } else if("chunked".equals(store)){
+            field = new Field(depth, width, new ChunkedFieldStore(depth, width));
+        } else if("mapped".equals(store)){
+            File file;
+            if(map == null){
+                file = File.createTempFile("field", ".map");
+                file.deleteOnExit();
+            } else {
+                file = new File(map);
+            }
+            field = new Field(depth, width, new MappedFieldStore(depth, width, file));
+        } else {
+            field = new Field(depth, width);
+        }
+        SimulationEngine engine = new SimulationEngine(field, threads);
+        if(seed != null){
+            engine.setSeed(seed);
+        }
+        try {
+            engine.setConfig(engine.getConfig().withPopulation(rabbits, foxes, bears, hunters));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Population values can't be negative.");
+            System.exit(1);
+        }
+        if(resume == null){
+            engine.reset();
+        } else {
+            Checkpoint.restore(engine, new File(resume));
+        }
+
+        StatsExporter exporter = null;
+        if(stats != null){
+            exporter = new StatsExporter(new File(stats), !stats.endsWith(".csv"));
+            engine.setExporter(exporter);
+        }
+        ReplayRecorder recorder = null;
+        if(record != null){
+            recorder = new ReplayRecorder(new File(record), depth, width);
+        }
+        PrintStream output = out == null ? System.out
+                : new PrintStream(new BufferedOutputStream(new FileOutputStream(out)));
+        try {
+            writeHeader(output);
+            long first = engine.getStepCount();
+            writePopulation(output, first, engine.getField());
+            if(recorder != null){
+                recorder.record(engine.getField(), first);
+            }
+
+            long start = System.nanoTime();
+            long step = first;
+            while(step < first + steps && engine.isViable()){
+                engine.step();
+                step++;
+                if(recorder != null){
+                    recorder.record(engine.getField(), step);
+                }
+                if(report > 0 && step % report == 0){
+                    writePopulation(output, step, engine.getField());
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            //Always end with the final state, unless it was just reported
+            if(report == 0 || step % report != 0){
+                writePopulation(output, step, engine.getField());
+            }
+            System.err.println((step - first) + " steps in " + (elapsed / 1000000) + " ms ("
+                    + ((step - first) * 1000000000L / Math.max(1, elapsed)) + " steps/s), "
+                    + (engine.isViable() ? "still viable" : "no longer viable") + ", seed " + engine.getSeed());
+            if(save != null){
+                Checkpoint.save(engine, new File(save));
+            }
+        } finally {
+            engine.shutdown();
+            if(exporter != null){
+                exporter.close();
+                if(exporter.getDropped() > 0){
+                    System.err.println(exporter.getDropped() + " steps were dropped from " + stats
+                            + ", the disk couldn't keep up");
+                }
+            }
+            if(recorder != null){
+                recorder.close();
+            }
+            output.flush();
+            if(output != System.out){
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Write the column names
+     * @param output Where to write to
+     */
+    private void writeHeader(PrintStream output){
+        StringBuilder line = new StringBuilder("step");
+        for(int species = Species.EMPTY + 1; species < Species.COUNT; species++){
+            line.append(',').append(Species.getName(species));
+        }
+        output.println(line);
+    }
+
+    /**
+     * Write the population of every species at the given step
+     * @param output Where to write to
+     * @param step The current step
+     * @param field The field to count
+     */
+    private void writePopulation(PrintStream output, long step, Field field){
+        StringBuilder line = new StringBuilder();
+        line.append(step);
+        for(int species = Species.EMPTY + 1; species < Species.COUNT; species++){
+            line.append(',').append(field.getCount(species));
+        }
+        output.println(line);
+    }
+}
@@ -1,8 +1,6 @@
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.GradientPaint;
-import java.util.Observable;
-import java.util.Observer;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -20,7 +18,7 @@ import org.jfree.ui.ApplicationFrame;
 /**
  * A Histogram where the number of animals are presented as Bars
  */
-public class HistoView extends ApplicationFrame implements Observer {
+public class HistoView extends ApplicationFrame implements StepListener {
 
 	public ChartPanel panel;
 	private FieldStats stats;
@@ -151,9 +149,10 @@ public class HistoView extends ApplicationFrame implements Observer {
     }
 
     /**
-     * Updates the Bars if the Observable says so
+     * Updates the Bars when the simulation has published a step
+     * @param snapshot The state of the simulation at the end of the step
      */
-    public void update(Observable o, Object arg) {
+    public void stepCompleted(StepSnapshot snapshot) {
     	 // row keys...
         String series1 = "Rabbits";
         String series2 = "Foxes";
@@ -162,9 +161,9 @@ public class HistoView extends ApplicationFrame implements Observer {
         // column keys...
         String category1 = "Field Statistics";
 
-        int rabbit = stats.getPopulationNumbers(field,"Rabbit");
-        int fox = stats.getPopulationNumbers(field,"Fox");
-        int bear = stats.getPopulationNumbers(field,"Bear");
+        long rabbit = snapshot.getCount(Species.RABBIT);
+        long fox = snapshot.getCount(Species.FOX);
+        long bear = snapshot.getCount(Species.BEAR);
 
 
     	dataset.setValue(rabbit,series1, category1);
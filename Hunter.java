@@ -1,5 +1,4 @@
 import java.util.List;
-import java.awt.*;
 
 /**
  * A simple model of a Hunter
@@ -9,6 +8,9 @@ import java.awt.*;
  *
  */
 public class Hunter extends FieldSprite implements Actor {
+    // How far a hunter can shoot, in every direction. The shooting of all hunters
+    // is done at once by the engine, see KillZone.
+    public static final int RANGE = 5;
     
     /**
      * Create a hunter.
@@ -19,18 +21,15 @@ public class Hunter extends FieldSprite implements Actor {
     public Hunter(Field field, Location location)
     {
         super(field, location);      
-        markColor = Color.green;
         field.setLocation(this.location, location, this);
     }
     /**
-     * This is what the hunter does most of the time: it hunts for
-     * rabbits and foxes.
+     * This is what the hunter does most of the time: it walks around.
+     * It has already shot everything in range at the start of the step.
      *
      */
     public void act(List<Animal> newHunter)
     {
-        shootAnimal(location);
-
         // Always try to move to a free location.
         Location newLocation = field.freeAdjacentLocation(location,1);
 
@@ -47,26 +46,6 @@ public class Hunter extends FieldSprite implements Actor {
     
 
     
-    /**
-     * Tell the hunter to look for rabbits and foxes in a 5 square radius to its current location.
-     * All animals in this rage are shot, except bears they are to big!
-     * @param location Where in the field it is located.
-     *
-     */
-    private void shootAnimal(Location location)
-    {
-        List<Location> adjacent = field.adjacentLocations(location,5);
-        for (Location anAdjacent : adjacent) {
-            FieldSprite sprite = field.getSpriteAt(anAdjacent);
-            if (sprite instanceof Animal && !(sprite instanceof Bear)) {
-                Animal animal = (Animal) sprite;
-                if (animal.isAlive()) {
-                    animal.setDead();
-                }
-            }
-        }
-    }
-    
     /**
      * @return if the hunter is alive
      */
@@ -75,5 +54,10 @@ public class Hunter extends FieldSprite implements Actor {
     }
     
 
+    /**
+     * @return The species code of a hunter.
+     */
+    public int getSpecies(){
+        return Species.HUNTER;
+    }
 }
-
@@ -0,0 +1,72 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for a wave of myxomatosis: a run of steps in which
+ * rabbits got infected in every step. The engine starts the event after the
+ * first step with infections and commits it after the first step without, so
+ * its duration covers the wave. Waves that infect only a few rabbits are left out.
+ */
+@Name("foxesandrabbits.InfectionWave")
+@Label("Infection Wave")
+@Category("Foxes and Rabbits")
+@StackTrace(false)
+@Description("A run of steps in which rabbits got infected with myxomatosis every step")
+public class InfectionWaveEvent extends jdk.jfr.Event {
+    // The fewest infections a wave must have to be recorded.
+    public static final long MIN_INFECTIONS = 10;
+
+    @Label("First Step")
+    long firstStep;
+
+    @Label("Last Step")
+    long lastStep;
+
+    @Label("Infections")
+    long infections;
+
+    @Label("Peak")
+    @Description("The most infections in one step of the wave")
+    long peak;
+
+    @Label("Rabbits")
+    @Description("The number of rabbits before the wave")
+    long rabbits;
+
+    /**
+     * Start a wave.
+     * @param step The first step with infections
+     * @param rabbits The number of rabbits at the start of that step
+     * @return The event, to add every step of the wave to
+     */
+    public static InfectionWaveEvent start(long step, long rabbits){
+        InfectionWaveEvent event = new InfectionWaveEvent();
+        event.firstStep = step;
+        event.rabbits = rabbits;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Add a step of the wave.
+     * @param step The number of the step
+     * @param infections The number of rabbits infected during the step
+     */
+    public void add(long step, long infections){
+        lastStep = step;
+        this.infections += infections;
+        peak = Math.max(peak, infections);
+    }
+
+    /**
+     * End the wave and record it if it infected enough rabbits.
+     */
+    public void finish(){
+        if(infections >= MIN_INFECTIONS){
+            commit();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The union of the ranges of all hunters, computed once per step.
+ * Every hunter adds its square of range Hunter.RANGE to a 2D difference array,
+ * which is summed up in one pass over the bounding box of all squares. Every
+ * position that ends up covered and holds a species hunters shoot is cleared in
+ * the same pass. The cost is the size of the box plus the number of hunters,
+ * no matter how much the ranges of the hunters overlap.
+ *
+ * When the hunters are so far apart that the box is larger than all their squares
+ * together, as on a huge sparse field, every hunter's square is shot on its own instead.
+ */
+public class KillZone {
+    // The difference array, and after summing the number of hunters covering a position.
+    // Laid out row after row over the bounding box, with one extra row and column.
+    private int[] cover;
+
+    /**
+     * Create a kill zone. The buffer grows on first use.
+     */
+    public KillZone(){
+        cover = new int[0];
+    }
+
+    /**
+     * Shoot every animal in range of a hunter, unless its species can't be shot.
+     * @param field The field the hunters are on
+     * @param hunters The hunters
+     */
+    public void shoot(Field field, List<Hunter> hunters){
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        int range = Hunter.RANGE;
+
+        // The bounding box of all ranges, clipped to the field.
+        int top = depth, bottom = -1, left = width, right = -1;
+        for(Hunter hunter : hunters){
+            Location location = hunter.getLocation();
+            if(location != null){
+                top = Math.min(top, Math.max(0, location.getRow() - range));
+                bottom = Math.max(bottom, Math.min(depth - 1, location.getRow() + range));
+                left = Math.min(left, Math.max(0, location.getCol() - range));
+                right = Math.max(right, Math.min(width - 1, location.getCol() + range));
+            }
+        }
+        if(bottom < top){
+            return;
+        }
+
+        int rows = bottom - top + 1;
+        int cols = right - left + 1;
+        int side = 2 * range + 1;
+        if((long) rows * cols > (long) hunters.size() * side * side){
+            shootEach(field, hunters);
+            return;
+        }
+        int stride = cols + 1;
+        int size = (rows + 1) * stride;
+        if(cover.length < size){
+            cover = new int[size];
+        }
+        Arrays.fill(cover, 0, size, 0);
+
+        // Mark the corners of every square, relative to the box.
+        for(Hunter hunter : hunters){
+            Location location = hunter.getLocation();
+            if(location != null){
+                int r0 = Math.max(0, location.getRow() - range) - top;
+                int r1 = Math.min(depth - 1, location.getRow() + range) - top + 1;
+                int c0 = Math.max(0, location.getCol() - range) - left;
+                int c1 = Math.min(width - 1, location.getCol() + range) - left + 1;
+                cover[r0 * stride + c0]++;
+                cover[r0 * stride + c1]--;
+                cover[r1 * stride + c0]--;
+                cover[r1 * stride + c1]++;
+            }
+        }
+
+        // Sum up in place, row after row, and shoot wherever the result is positive.
+        for(int r = 0; r < rows; r++){
+            int index = r * stride;
+            for(int c = 0; c < cols; c++, index++){
+                int value = cover[index];
+                if(c > 0){
+                    value += cover[index - 1];
+                }
+                if(r > 0){
+                    value += cover[index - stride];
+                    if(c > 0){
+                        value -= cover[index - stride - 1];
+                    }
+                }
+                cover[index] = value;
+                if(value > 0){
+                    shootAt(field, top + r, left + c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shoot the square of every hunter on its own.
+     * @param field The field the hunters are on
+     * @param hunters The hunters
+     */
+    private void shootEach(Field field, List<Hunter> hunters){
+        int range = Hunter.RANGE;
+        for(Hunter hunter : hunters){
+            Location location = hunter.getLocation();
+            if(location != null){
+                int r1 = Math.min(field.getDepth() - 1, location.getRow() + range);
+                int c1 = Math.min(field.getWidth() - 1, location.getCol() + range);
+                for(int row = Math.max(0, location.getRow() - range); row <= r1; row++){
+                    for(int col = Math.max(0, location.getCol() - range); col <= c1; col++){
+                        shootAt(field, row, col);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Shoot the animal at a position, if it's a species hunters shoot.
+     * @param field The field
+     * @param row The row of the position
+     * @param col The column of the position
+     */
+    private void shootAt(Field field, int row, int col){
+        if(Species.isShootable(field.getSpeciesAt(row, col))){
+            ((Animal) field.getSpriteAt(row, col)).setDead();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how often a duration in nanoseconds fell into each of a fixed set of
+ * buckets, so percentiles can be read without keeping every value. Below 16 every
+ * value has a bucket of its own, above that every power of two is split into 16
+ * buckets, so a reported value is at most 1/16 above the real one. Recording
+ * doesn't allocate and takes no lock; one thread records while others read.
+ */
+public class LatencyHistogram {
+    // The number of bits below the highest one bit that select a bucket within a power of two.
+    private static final int SUB_BITS = 4;
+    // The number of buckets per power of two.
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Enough buckets for any positive long.
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    // The number of values in every bucket.
+    private final AtomicLongArray buckets;
+
+    /**
+     * Create an empty histogram.
+     */
+    public LatencyHistogram(){
+        buckets = new AtomicLongArray(BUCKETS);
+    }
+
+    /**
+     * Count a value.
+     * @param nanos The duration, negative values count as zero
+     */
+    public void record(long nanos){
+        buckets.incrementAndGet(bucketOf(Math.max(nanos, 0)));
+    }
+
+    /**
+     * Forget all values. Values recorded at the same time may or may not survive.
+     */
+    public void clear(){
+        for(int i = 0; i < BUCKETS; i++){
+            buckets.set(i, 0);
+        }
+    }
+
+    /**
+     * @return The number of values counted.
+     */
+    public long getCount(){
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Find the value that a given fraction of the values doesn't exceed.
+     * @param fraction The fraction, 0.5 for the median
+     * @return The highest value in the bucket that holds the percentile, 0 if nothing was counted
+     */
+    public long getPercentile(double fraction){
+        return getPercentile(fraction, null);
+    }
+
+    /**
+     * Find the value that a given fraction of the values of this histogram and another
+     * one together doesn't exceed, e.g. of the current and the last interval.
+     * @param fraction The fraction, 0.5 for the median
+     * @param other The other histogram, null for this one alone
+     * @return The highest value in the bucket that holds the percentile, 0 if nothing was counted
+     */
+    public long getPercentile(double fraction, LatencyHistogram other){
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            counts[i] = buckets.get(i) + (other == null ? 0 : other.buckets.get(i));
+            total += counts[i];
+        }
+        if(total == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += counts[i];
+            if(seen >= rank){
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(BUCKETS - 1);
+    }
+
+    /**
+     * @param value A value, not negative
+     * @return The bucket the value belongs in.
+     */
+    private static int bucketOf(long value){
+        if(value < SUB_BUCKETS){
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @param bucket A bucket
+     * @return The highest value that belongs in the bucket.
+     */
+    private static long highestValueOf(int bucket){
+        if(bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
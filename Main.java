@@ -2,9 +2,27 @@ import java.io.*;
 
 /**
  * The start of the program, iniates a new SimulationControl
+ *
+ * Usage: java Main [-record file | -replay file]
+ *   -record     record the runs to a replay log
+ *   -replay     play a replay log back instead of running a simulation
  */
 public class Main {
     public static void main(String[] args) throws IOException {
-        new SimulationControl();
+        if(args.length == 0) {
+            new SimulationControl();
+        } else if(args.length == 2 && "-record".equals(args[0])) {
+            new SimulationControl().startRecording(new File(args[1]));
+        } else if(args.length == 2 && "-replay".equals(args[0])) {
+            ReplayReader replay = new ReplayReader(new File(args[1]));
+            if(replay.getFrameCount() == 0) {
+                System.err.println(args[1] + " holds no frames.");
+                System.exit(1);
+            }
+            new ReplayViewer(replay);
+        } else {
+            System.err.println("Usage: java Main [-record file | -replay file]");
+            System.exit(1);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,210 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A field store that keeps the cell value of every position in a memory mapped
+ * file instead of on the heap. The operating system pages the file in and out,
+ * so the field can be larger than the heap; only the sprites, which are the
+ * actors and roads themselves, stay on the heap, in a SpriteMap by position.
+ *
+ * The file starts with a header of HEADER_SIZE bytes: the int MAGIC, the depth
+ * and the width, followed by one little endian int per position, row after row,
+ * holding the species code and mark bit. After the cells, from the first multiple
+ * of 8, follows the occupancy bitset: one little endian long per 64 positions of
+ * a row, bit n set when position n of the word is taken. Another process can map
+ * the same file to watch the field while it runs.
+ *
+ * A single buffer can't map more than 2 GB, so the file is mapped in segments.
+ */
+public class MappedFieldStore implements FieldStore {
+    // The first int of the file, "FXRB".
+    public static final int MAGIC = 0x46585242;
+    // The size of the header in bytes, a multiple of 4 so no cell crosses a segment.
+    public static final int HEADER_SIZE = 16;
+    // The number of bytes mapped by one segment.
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    // The width of the field.
+    private final int width;
+    // The number of words of the occupancy bitset per row.
+    private final int wordsPerRow;
+    // The offset in the file of the occupancy bitset.
+    private final long bitsetOffset;
+    // The mapped segments of the file, in order.
+    private final MappedByteBuffer[] segments;
+    // The sprite of every taken position, by row * width + col.
+    private final SpriteMap sprites;
+
+    /**
+     * Create a store for a field of the given dimensions in the given file. The file
+     * is created, or cut to size and emptied if it already exists.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param file The file that holds the cells.
+     * @throws IOException If the file can't be created or mapped.
+     */
+    public MappedFieldStore(int depth, int width, File file) throws IOException {
+        this.width = width;
+        wordsPerRow = (width + 63) / 64;
+        sprites = new SpriteMap();
+        // A long at a multiple of 8 never crosses a segment.
+        bitsetOffset = (HEADER_SIZE + (long) depth * width * 4 + 7) & ~7L;
+        long size = bitsetOffset + (long) depth * wordsPerRow * 8;
+        RandomAccessFile access = new RandomAccessFile(file, "rw");
+        try {
+            // Setting the length to 0 first empties an old file; the new length is
+            // filled with zeros, which the file system can leave unallocated.
+            access.setLength(0);
+            access.setLength(size);
+            FileChannel channel = access.getChannel();
+            int count = (int) ((size + SEGMENT_MASK) >> SEGMENT_SHIFT);
+            segments = new MappedByteBuffer[count];
+            for(int s = 0; s < count; s++) {
+                long start = (long) s << SEGMENT_SHIFT;
+                segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(size - start, 1L << SEGMENT_SHIFT));
+                segments[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } finally {
+            // The mapping stays valid after the file is closed.
+            access.close();
+        }
+        segments[0].putInt(0, MAGIC);
+        segments[0].putInt(4, depth);
+        segments[0].putInt(8, width);
+    }
+
+    /**
+     * Empty every position. Only the positions that hold a sprite are written.
+     */
+    public void clear(){
+        for(int entry = 0; entry < sprites.capacity(); entry++) {
+            long position = sprites.getKey(entry);
+            if(position >= 0) {
+                putCell(position, Species.EMPTY);
+                setTaken(position, false);
+            }
+        }
+        sprites.clear();
+    }
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return The species code and mark bit of the position, Species.EMPTY if it's free
+     */
+    public int getCell(int row, int col){
+        long offset = HEADER_SIZE + ((long) row * width + col) * 4;
+        return segments[(int) (offset >> SEGMENT_SHIFT)].getInt((int) (offset & SEGMENT_MASK));
+    }
+
+    /**
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return The sprite at the position, null if it's free
+     */
+    public FieldSprite getSprite(int row, int col){
+        return sprites.get((long) row * width + col);
+    }
+
+    /**
+     * Store a cell value and its occupancy bit in the file and the sprite in the map.
+     * @param row The row of the position
+     * @param col The column of the position
+     * @param cell The species code, possibly with Field.MARK set
+     * @param sprite The sprite, null when the position is cleared
+     */
+    public void set(int row, int col, int cell, FieldSprite sprite){
+        long position = (long) row * width + col;
+        boolean taken = (cell & Field.SPECIES_MASK) != Species.EMPTY;
+        if(taken != isTaken(row, col)) {
+            setTaken(position, taken);
+        }
+        putCell(position, cell);
+        if(sprite == null) {
+            sprites.remove(position);
+        }
+        else {
+            sprites.put(position, sprite);
+        }
+    }
+
+    /**
+     * Write the cell value of a position to the file.
+     * @param position The position, row * width + col
+     * @param cell The cell value
+     */
+    private void putCell(long position, int cell){
+        long offset = HEADER_SIZE + position * 4;
+        segments[(int) (offset >> SEGMENT_SHIFT)].putInt((int) (offset & SEGMENT_MASK), cell);
+    }
+
+    /**
+     * Set or clear the occupancy bit of a position.
+     * @param position The position, row * width + col
+     * @param taken True if the position is taken
+     */
+    private void setTaken(long position, boolean taken){
+        long row = position / width;
+        int col = (int) (position - row * width);
+        long offset = wordOffset(row, col >> 6);
+        MappedByteBuffer segment = segments[(int) (offset >> SEGMENT_SHIFT)];
+        int index = (int) (offset & SEGMENT_MASK);
+        long bit = 1L << (col & 63);
+        segment.putLong(index, taken ? segment.getLong(index) | bit : segment.getLong(index) & ~bit);
+    }
+
+    /**
+     * @param row The row
+     * @param word The index of the word within the row
+     * @return The offset in the file of the word of the occupancy bitset.
+     */
+    private long wordOffset(long row, int word){
+        return bitsetOffset + (row * wordsPerRow + word) * 8;
+    }
+
+    /**
+     * A position is taken when its cell holds a species.
+     * @param row The row of the position
+     * @param col The column of the position
+     * @return True if the position is taken
+     */
+    public boolean isTaken(int row, int col){
+        return (getCell(row, col) & Field.SPECIES_MASK) != Species.EMPTY;
+    }
+
+    /**
+     * @param row The row
+     * @param word The index of the word within the row
+     * @return The bits of the word, set where a position is taken
+     */
+    public long getOccupiedWord(int row, int word){
+        long offset = wordOffset(row, word);
+        return segments[(int) (offset >> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+    }
+
+    /**
+     * Copy the cell values row after row.
+     * @param destination An array of at least depth * width cells
+     */
+    public void copyCells(int[] destination){
+        int depth = segments[0].getInt(4);
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                destination[row * width + col] = getCell(row, col);
+            }
+        }
+    }
+
+    /**
+     * Buffers and the map of sprites may only be changed by one thread at a time.
+     * @return Always false
+     */
+    public boolean supportsParallelUpdate(){
+        return false;
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Callback used to walk the positions around a location in the field
+ * without building a list of locations first.
+ */
+public interface NeighbourVisitor {
+
+    /**
+     * Visit one position around the location that is being walked.
+     * @param row The row of the visited position
+     * @param col The column of the visited position
+     * @return True to stop the walk at this position, false to continue with the next one
+     */
+    public abstract boolean visit(int row, int col);
+}
@@ -22,6 +22,8 @@ import javax.swing.JTextField;
 public class OptionPanel extends  JFrame {
 
     private JPanel optionPanel;
+    // The control of the simulation whose configuration is edited
+    private SimulationControl simulationControl;
 
 	private JLabeledTextField rabbitField1, rabbitField2, rabbitField3, rabbitField4, rabbitField5;
 	private JLabeledTextField foxField1, foxField2, foxField3, foxField4;
@@ -30,9 +32,11 @@ public class OptionPanel extends  JFrame {
 
     /**
      * Constructor for objects of class OptionPanel
+     * @param simulationControl The control of the simulation whose configuration is edited
      */
-    public OptionPanel()
+    public OptionPanel(SimulationControl simulationControl)
     {
+    	this.simulationControl = simulationControl;
     	setLocation(100, 50);
 
     	optionPanel = new JPanel();
@@ -48,24 +52,29 @@ public class OptionPanel extends  JFrame {
      */
     public void addLabels()
     {
+    	SimulationConfig config = simulationControl.getConfig();
+
     	//Rabbit
-    	rabbitField1 = new JLabeledTextField("Breeding Age",Rabbit.BREEDING_AGE);
-    	rabbitField2 = new JLabeledTextField("Maximum Age",Rabbit.MAX_AGE);
-    	rabbitField3 = new JLabeledTextField("Breeding %",Rabbit.BREEDING_PROBABILITY);
-    	rabbitField4 = new JLabeledTextField("Maximum Litter",Rabbit.MAX_LITTER_SIZE);
-    	rabbitField5 = new JLabeledTextField("Myxo Gene %",Rabbit.MYXO_GENE_PERCENTAGE);
+    	SpeciesParameters rabbit = config.getSpecies(Species.RABBIT);
+    	rabbitField1 = new JLabeledTextField("Breeding Age",rabbit.getBreedingAge());
+    	rabbitField2 = new JLabeledTextField("Maximum Age",rabbit.getMaxAge());
+    	rabbitField3 = new JLabeledTextField("Breeding %",rabbit.getBreedingProbability());
+    	rabbitField4 = new JLabeledTextField("Maximum Litter",rabbit.getMaxLitterSize());
+    	rabbitField5 = new JLabeledTextField("Myxo Gene %",rabbit.getGenePercentage());
 
     	//Fox
-    	foxField1 = new JLabeledTextField("Breeding Age",Fox.BREEDING_AGE);
-    	foxField2 = new JLabeledTextField("Maximum Age",Fox.MAX_AGE);
-    	foxField3 = new JLabeledTextField("Breeding %",Fox.BREEDING_PROBABILITY);
-    	foxField4 = new JLabeledTextField("Maximum Litter",Fox.MAX_LITTER_SIZE);
+    	SpeciesParameters fox = config.getSpecies(Species.FOX);
+    	foxField1 = new JLabeledTextField("Breeding Age",fox.getBreedingAge());
+    	foxField2 = new JLabeledTextField("Maximum Age",fox.getMaxAge());
+    	foxField3 = new JLabeledTextField("Breeding %",fox.getBreedingProbability());
+    	foxField4 = new JLabeledTextField("Maximum Litter",fox.getMaxLitterSize());
 
     	//Bear
-    	bearField1 = new JLabeledTextField("Breeding Age",Bear.BREEDING_AGE);
-    	bearField2 = new JLabeledTextField("Maximum Age",Bear.MAX_AGE);
-    	bearField3 = new JLabeledTextField("Breeding %",Bear.BREEDING_PROBABILITY);
-    	bearField4 = new JLabeledTextField("Maximum Litter",Bear.MAX_LITTER_SIZE);
+    	SpeciesParameters bear = config.getSpecies(Species.BEAR);
+    	bearField1 = new JLabeledTextField("Breeding Age",bear.getBreedingAge());
+    	bearField2 = new JLabeledTextField("Maximum Age",bear.getMaxAge());
+    	bearField3 = new JLabeledTextField("Breeding %",bear.getBreedingProbability());
+    	bearField4 = new JLabeledTextField("Maximum Litter",bear.getMaxLitterSize());
     	
     	//Add Images and Headers
     	optionPanel.add(new JLabel(ImageClass.getImage("rabbit.JPG",50)));
@@ -118,27 +127,29 @@ public class OptionPanel extends  JFrame {
     }
     
     /**
-     * Method for the OK button, Get's the value's from the fields and updates the variable's
+     * Method for the OK button, Get's the value's from the fields and hands them to the
+     * simulation as one new configuration, which it takes at the start of the next step
      */
     private void okPressed()
     {
-    	Rabbit.BREEDING_AGE = (int)rabbitField1.getValue();
-    	Rabbit.MAX_AGE = (int)rabbitField2.getValue();
-    	Rabbit.BREEDING_PROBABILITY = rabbitField3.getValue();
-    	Rabbit.MAX_LITTER_SIZE = (int)rabbitField4.getValue();
-    	Rabbit.MYXO_GENE_PERCENTAGE = (int)rabbitField5.getValue();
-    	
-    	Fox.BREEDING_AGE = (int)foxField1.getValue();
-    	Fox.MAX_AGE = (int)foxField2.getValue();
-    	Fox.BREEDING_PROBABILITY = foxField3.getValue();
-    	Fox.MAX_LITTER_SIZE = (int)foxField4.getValue();
+    	SimulationConfig config = simulationControl.getConfig();
+    	SpeciesParameters rabbit = config.getSpecies(Species.RABBIT);
+    	SpeciesParameters fox = config.getSpecies(Species.FOX);
+    	SpeciesParameters bear = config.getSpecies(Species.BEAR);
+
+    	config = config.withSpecies(Species.RABBIT, new SpeciesParameters((int)rabbitField1.getValue(),
+    			(int)rabbitField2.getValue(), rabbitField3.getValue(), (int)rabbitField4.getValue(),
+    			(int)rabbitField5.getValue(), rabbit.getFoodValues()));
     	
-    	Bear.BREEDING_AGE = (int)bearField1.getValue();
-    	Bear.MAX_AGE = (int)bearField2.getValue();
-    	Bear.BREEDING_PROBABILITY = bearField3.getValue();
-    	Bear.MAX_LITTER_SIZE = (int)bearField4.getValue();
+    	config = config.withSpecies(Species.FOX, new SpeciesParameters((int)foxField1.getValue(),
+    			(int)foxField2.getValue(), foxField3.getValue(), (int)foxField4.getValue(),
+    			fox.getGenePercentage(), fox.getFoodValues()));
     	
+    	config = config.withSpecies(Species.BEAR, new SpeciesParameters((int)bearField1.getValue(),
+    			(int)bearField2.getValue(), bearField3.getValue(), (int)bearField4.getValue(),
+    			bear.getGenePercentage(), bear.getFoodValues()));
     	
+    	simulationControl.setConfig(config);
     	dispose(); //closes the option panel
     }
    
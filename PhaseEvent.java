@@ -0,0 +1,50 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for a phase of a step: a part of the step of the engine,
+ * or what the GUI does with a step. Start one with start and commit it when the
+ * phase is over. While nothing records, this costs next to nothing.
+ */
+@Name("foxesandrabbits.Phase")
+@Label("Simulation Phase")
+@Category("Foxes and Rabbits")
+@StackTrace(false)
+@Description("A phase of a simulation step")
+public class PhaseEvent extends jdk.jfr.Event {
+    // Aging all animals.
+    public static final String AGE = "age";
+    // The hunters shooting.
+    public static final String SHOOT = "shoot";
+    // All actors acting.
+    public static final String ACT = "act";
+    // Removing the dead from the strips and adding the movers and newborns.
+    public static final String MERGE = "merge";
+    // Checking the statistics of the field to see whether the simulation is viable.
+    public static final String STATS = "stats";
+    // Drawing a snapshot of the field.
+    public static final String RENDER = "render";
+
+    @Label("Step")
+    long step;
+
+    @Label("Phase")
+    String phase;
+
+    /**
+     * Start timing a phase.
+     * @param step The number of the step
+     * @param phase The phase, e.g. ACT
+     * @return The event, to commit at the end of the phase
+     */
+    public static PhaseEvent start(long step, String phase){
+        PhaseEvent event = new PhaseEvent();
+        event.step = step;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+}
@@ -8,89 +8,92 @@ import java.util.List;
  */
 public class Populator
 {
-    // instance variables - replace the example below with your own
-    private SimulationControl simulator;
     private Field field;
     private List<Actor> actors;
+    //The defaults of the population, a run reads its own from its SimulationConfig.
     //The probability that a rabbit will be created in any given grid position.
-    private static double RABBIT_CREATION_PROBABILITY = 0.08;
+    public static final double RABBIT_CREATION_PROBABILITY = 0.08;
     //The probability that a fox will be created in any given grid position.
-    private static double FOX_CREATION_PROBABILITY = 0.02;
+    public static final double FOX_CREATION_PROBABILITY = 0.02;
     //The probability that a bear will be created in any given grid position
-    private static double BEAR_CREATION_PROBABILITY = 0.0005;
+    public static final double BEAR_CREATION_PROBABILITY = 0.0005;
     //The number of hunters to start with
-    private static double NUMBER_OF_HUNTERS = 1;
+    public static final double NUMBER_OF_HUNTERS = 1;
     //The amount of rabbits that have myxomatosis
-    private static double MYXOMATOSIS_INFECTION_PROBABILITY = 0.004;
+    public static final double MYXOMATOSIS_INFECTION_PROBABILITY = 0.004;
     /**
      * Constructor for objects of class Populate
-     * @param simulator The simulator control class
      * @param field The field which the populator is populating
      * @param actors The list with actors
      */
-    public Populator(SimulationControl simulator,Field field,List<Actor> actors)
+    public Populator(Field field,List<Actor> actors)
     {
         // initialise instance variables
-        this.simulator=simulator;
         this.field=field;
         this.actors=actors;
     }
 
-    /**
-     * Set the Population variable and check if it's allowed
-     * @param rabbit chance of rabbit creation
-     * @param fox chance of fox creation
-     * @param bear chance of bear creation
-     * @param hunter number of hunters
-     * @return true if successful
-     */
-    public boolean setPopulation(double rabbit,double fox, double bear, double hunter){
-        if (rabbit<0 || fox<0 || bear<0 || hunter<0){
-            return false;
-        }
-
-        RABBIT_CREATION_PROBABILITY = rabbit/100;
-        FOX_CREATION_PROBABILITY = fox/100;
-        BEAR_CREATION_PROBABILITY = bear/100;
-        NUMBER_OF_HUNTERS = hunter;
-        return true;
-    }
-
     /**
      * Randomly populate the field with foxes and rabbits.
-     * Using the according variable's
+     * Using the according values of the configuration
+     * Instead of drawing for every position, the gap to the next position that gets
+     * an animal is drawn from a geometric distribution, so only the positions that
+     * are populated cost any work. This is what makes huge, sparse fields possible.
+     * @param config The configuration of the run
      */
-    public void populate()
+    public void populate(SimulationConfig config)
     {
         Random rand = Randomizer.getRandom();
         field.clear();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                if(rand.nextDouble() <= FOX_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Fox fox = new Fox(true, field, location);
-                    actors.add(fox);
+        // A position gets a fox, else maybe a rabbit, else maybe a bear, just like
+        // when every position is tried in turn.
+        double fox = Math.min(1, config.getFoxProbability());
+        double rabbit = (1 - fox) * Math.min(1, config.getRabbitProbability());
+        double bear = (1 - fox) * (1 - Math.min(1, config.getRabbitProbability())) * Math.min(1, config.getBearProbability());
+        double any = fox + rabbit + bear;
+        if(any > 0) {
+            long width = field.getWidth();
+            long area = field.getDepth() * width;
+            // The log of the chance that a position stays empty, -infinity if none does.
+            double logEmpty = Math.log(1 - any);
+            long position = nextGap(rand, logEmpty);
+            while(position < area) {
+                Location location = new Location((int) (position / width), (int) (position % width));
+                double pick = rand.nextDouble() * any;
+                if(pick < fox) {
+                    actors.add(Fox.create(true, field, location));
                 }
-                else if(rand.nextDouble() <= RABBIT_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Rabbit rabbit = new Rabbit(true, field, location);
-                    rabbit.setMyxomatosisInfected(rand.nextDouble() <= MYXOMATOSIS_INFECTION_PROBABILITY);                    
-                    actors.add(rabbit);
+                else if(pick < fox + rabbit) {
+                    Rabbit created = Rabbit.create(true, field, location);
+                    created.setMyxomatosisInfected(rand.nextDouble() <= config.getInfectionProbability());
+                    actors.add(created);
                 }
-                else if(rand.nextDouble() <= BEAR_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Bear bear = new Bear(true, field, location);
-                    actors.add(bear);
-                } // else leave the location empty.
+                else {
+                    actors.add(Bear.create(true, field, location));
+                }
+                position += 1 + nextGap(rand, logEmpty);
             }
         }
     
         //Add the Hunters to the Field
         int hunterAmount = 0;
-        while(hunterAmount < NUMBER_OF_HUNTERS){
+        while(hunterAmount < config.getHunters()){
             Hunter hunter = new Hunter(field,field.getFreeRandomLocation());
             actors.add(hunter);
             hunterAmount++;
         }
     }
+
+    /**
+     * Draw the number of empty positions before the next populated one.
+     * @param rand The random generator
+     * @param logEmpty The log of the chance that a single position stays empty
+     * @return The number of positions to skip, Long.MAX_VALUE if nothing is populated anymore
+     */
+    private static long nextGap(Random rand, double logEmpty)
+    {
+        // 1 - nextDouble() is never 0, so the log is finite.
+        double gap = Math.floor(Math.log(1 - rand.nextDouble()) / logEmpty);
+        return gap >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE / 2 : (long) gap;
+    }
 }
@@ -1,6 +1,5 @@
 import java.util.List;
 import java.util.Random;
-import java.awt.*;
 
 /**
  * A simple model of a rabbit.
@@ -9,30 +8,23 @@ import java.awt.*;
  * @author David J. Barnes and Michael Kolling
  * @version 2008.03.30
  */
-public class Rabbit extends Animal
+public class Rabbit extends Animal implements NeighbourVisitor
 {
-    // Characteristics shared by all rabbits (static fields).
+    // The default characteristics of rabbits, a run reads its own from its SimulationConfig.
 
     // The age at which a rabbit can start to breed.
-    public static int BREEDING_AGE = 5;
+    public static final int BREEDING_AGE = 5;
     // The age to which a rabbit can live.
-    public static int MAX_AGE = 40;
+    public static final int MAX_AGE = 40;
     // The likelihood of a rabbit breeding.
-    public static double BREEDING_PROBABILITY = 0.15;
+    public static final double BREEDING_PROBABILITY = 0.15;
     // The maximum number of births.
-    public static int MAX_LITTER_SIZE = 4;
+    public static final int MAX_LITTER_SIZE = 4;
     // The time a rabbit with myxomatosis has left until it dies of the disease
     private static final int MYXOMATOSIS_MORTALITY_AGE = 5;
-    // A shared random number generator to control breeding.
-    private static final Random rand = Randomizer.getRandom();
-    public static int MYXO_GENE_PERCENTAGE = 90;
-    // Individual characteristics (instance fields).
-    // Indicates if the rabbit has myxomatosis
-    private boolean myxomatosisGene;
-    private boolean myxomatosisInfected;
-    
-    // The rabbit's age.
-    private int age;
+    public static final int MYXO_GENE_PERCENTAGE = 90;
+    // Individual characteristics (age and myxomatosis flags) are kept in the AnimalStore,
+    // together with the parameters of the run.
 
     /**
      * Create a new rabbit. A rabbit may be created with age
@@ -45,30 +37,57 @@ public class Rabbit extends Animal
     public Rabbit(boolean randomAge, Field field, Location location)
     {
         super(field, location);
-        markColor = Color.orange;
-        myxomatosisGene = rand.nextInt(100) <= MYXO_GENE_PERCENTAGE;
-        myxomatosisInfected = false;
-        age = 0;
+        initState(randomAge);
+    }
+
+    /**
+     * Create a rabbit, reviving a dead one of the same field when there is one.
+     * 
+     * @param randomAge If true, the rabbit will have a random age.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     * @return The new rabbit.
+     */
+    public static Rabbit create(boolean randomAge, Field field, Location location)
+    {
+        Rabbit rabbit = (Rabbit) field.getStore(Species.RABBIT).reuse();
+        if(rabbit == null) {
+            return new Rabbit(randomAge, field, location);
+        }
+        rabbit.init(field, location);
+        rabbit.initState(randomAge);
+        return rabbit;
+    }
+
+    /**
+     * Set the state of a rabbit that was just put on the field.
+     * @param randomAge If true, the rabbit will have a random age.
+     */
+    private void initState(boolean randomAge)
+    {
+        Random rand = Randomizer.getRandom();
+        SpeciesParameters parameters = store.getParameters();
+        store.setFlag(slot, AnimalStore.GENE, rand.nextInt(100) <= parameters.getGenePercentage());
         if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
+            store.setAge(slot, rand.nextInt(parameters.getMaxAge()));
         }
     }
     
     /**
      * This is what the rabbit does most of the time - it runs 
-     * around. Sometimes it will breed or die of old age.
+     * around. Sometimes it will breed. Growing older is done for all
+     * rabbits at once by the engine, see AnimalStore.growOlder.
      * @param newRabbits A list to add newly born rabbits to.
      */
     public void act(List<Animal> newRabbits)
     {
-        incrementAge();
         if(isAlive()) {
             giveBirth(newRabbits);            
             // Try to move into a free location.
             Location newLocation = getField().freeAdjacentLocation(getLocation(),1);
             if(newLocation != null) {
                 setLocation(newLocation);
-                if(myxomatosisInfected)
+                if(mark())
                     infectRabbits();
             }
             else {
@@ -82,30 +101,25 @@ public class Rabbit extends Animal
      * Infects all adjacent rabbits if they are able to get the disease.
      */
     private void infectRabbits() {
-        List<Location> locations = getField().adjacentLocations(getLocation(), 1);
-        FieldSprite sprite;
-        Rabbit rabbit;
-        for(Location location : locations){
-            sprite = getField().getSpriteAt(location);
-            if(sprite instanceof Rabbit){
-                rabbit = (Rabbit) sprite;
-                rabbit.setMyxomatosisInfected(rabbit.hasMyxomatosisGene());
-            }
-        }
+        Location location = getLocation();
+        getField().visitAdjacent(location.getRow(), location.getCol(), 1, this);
     }
 
     /**
-     * Increase the age.
-     * This could result in the rabbit's death.
+     * Infects the rabbit at the visited position if it is able to get the disease.
+     * @param row The row of the visited position
+     * @param col The column of the visited position
+     * @return Always false, every adjacent rabbit is visited.
      */
-    private void incrementAge()
-    {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
+    public boolean visit(int row, int col) {
+        Field field = getField();
+        if(field.getSpeciesAt(row, col) == Species.RABBIT){
+            Rabbit rabbit = (Rabbit) field.getSpriteAt(row, col);
+            rabbit.setMyxomatosisInfected(rabbit.hasMyxomatosisGene());
         }
+        return false;
     }
-    
+
     /**
      * Check whether or not this rabbit is to give birth at this step.
      * New births will be made into free adjacent locations.
@@ -114,14 +128,16 @@ public class Rabbit extends Animal
     private void giveBirth(List<Animal> newRabbits)
     {
         // New rabbits are born into adjacent locations.
-        // Get a list of adjacent free locations.
-        Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation(),1);
+        // Only look for free locations when there is something to be born.
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Rabbit young = new Rabbit(false, field, loc);
-            newRabbits.add(young);
+        if(births > 0) {
+            Field field = getField();
+            Location[] free = litterBuffer(births);
+            int count = field.freeAdjacentLocations(getLocation(), 1, free, births);
+            for(int b = 0; b < count; b++) {
+                Rabbit young = Rabbit.create(false, field, free[b]);
+                newRabbits.add(young);
+            }
         }
     }
         
@@ -133,8 +149,10 @@ public class Rabbit extends Animal
     private int breed()
     {
         int births = 0;
-        if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
-            births = rand.nextInt(MAX_LITTER_SIZE) + 1;
+        Random rand = Randomizer.getRandom();
+        SpeciesParameters parameters = store.getParameters();
+        if(canBreed() && rand.nextDouble() <= parameters.getBreedingProbability()) {
+            births = rand.nextInt(parameters.getMaxLitterSize()) + 1;
         }
         return births;
     }
@@ -145,7 +163,7 @@ public class Rabbit extends Animal
      */
     private boolean canBreed()
     {
-        return age >= BREEDING_AGE;
+        return store.getAge(slot) >= store.getParameters().getBreedingAge();
     }
 
     /**
@@ -153,7 +171,7 @@ public class Rabbit extends Animal
      * @return true if the rabbit has the gene
      */
     public boolean hasMyxomatosisGene() {
-        return myxomatosisGene;
+        return store.hasFlag(slot, AnimalStore.GENE);
     }
 
     /**
@@ -161,17 +179,29 @@ public class Rabbit extends Animal
      * @param myxomatosisInfected true to make this rabbit sick, false to cure it.
      */
     public void setMyxomatosisInfected(boolean myxomatosisInfected) {
-        if(myxomatosisInfected && MAX_AGE - MYXOMATOSIS_MORTALITY_AGE > age){
-            age = MAX_AGE - 5;
+        int maxAge = store.getParameters().getMaxAge();
+        if(myxomatosisInfected && maxAge - MYXOMATOSIS_MORTALITY_AGE > store.getAge(slot)){
+            store.setAge(slot, maxAge - MYXOMATOSIS_MORTALITY_AGE);
+        }
+        store.setFlag(slot, AnimalStore.INFECTED, myxomatosisInfected);
+        if(location != null) {
+            field.setMarked(location, myxomatosisInfected);
         }
-        this.myxomatosisInfected = myxomatosisInfected;
     }
 
     /**
      * @return true if the rabbit is infected.
      */
     public boolean mark(){
-        return myxomatosisInfected;
+        // The field asks while the sprite constructor places the rabbit, before it has a slot.
+        return store != null && store.hasFlag(slot, AnimalStore.INFECTED);
     }
-}
 
+    /**
+     * @return The species code of a rabbit.
+     */
+    public int getSpecies()
+    {
+        return Species.RABBIT;
+    }
+}
@@ -2,16 +2,37 @@ import java.util.Random;
 
 /**
  * Provide control over the randomization of the simulation.
+ * Every thread has its own CounterRandom. Before an entity acts, the engine
+ * keys the generator of the running thread with the seed of the run, the step
+ * and the id of the entity. Drawing a number needs no synchronisation, and a
+ * run with a given seed gives the same results on any number of threads.
  * 
  * @author David J. Barnes and Michael Kolling
  * @version 2008.03.30
  */
 public class Randomizer {
+    // The generator of every thread.
+    private static final ThreadLocal<CounterRandom> generators = new ThreadLocal<CounterRandom>() {
+        protected CounterRandom initialValue() {
+            return new CounterRandom();
+        }
+    };
+
     /**
-     * Provide a random generator.
-     * @return A Random object.
+     * Provide a random generator. Draw from it right away, don't keep it.
+     * @return The generator of the calling thread.
      */
     public static Random getRandom(){
-        return new Random();
+        return generators.get();
+    }
+
+    /**
+     * Start the stream of an entity on the generator of the calling thread.
+     * @param seed The seed of the run
+     * @param step The step that is being simulated
+     * @param entity The id of the entity that is going to draw
+     */
+    public static void key(long seed, long step, long entity){
+        generators.get().key(seed, step, entity);
     }
 }
@@ -0,0 +1,306 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a replay log written by ReplayRecorder and rebuilds the field of any of its
+ * frames, without running the simulation. Opening a log only reads the frame headers,
+ * which hold the population of every frame; the positions of a frame are rebuilt from
+ * the nearest keyframe before it, or from the current frame when that is closer.
+ *
+ * A frame that was cut off, because the recording was killed, ends the log.
+ */
+public class ReplayReader {
+    // The channel of the log.
+    private final RandomAccessFile access;
+    private final FileChannel channel;
+    // The depth and width of the recorded field.
+    private final int depth, width;
+    // The number of frames in the log.
+    private int frames;
+    // Where the header of every frame starts, indexed by frame.
+    private long[] offsets;
+    // The step of every frame, indexed by frame.
+    private long[] steps;
+    // The population of every frame, Species.COUNT numbers per frame.
+    private long[] counts;
+    // The frames that are keyframes, in order.
+    private int[] keyframes;
+    private int keyframeCount;
+    // The byte of every position at the current frame.
+    private final byte[] positions;
+    // The frame the positions are at, -1 before the first seek.
+    private int current;
+    // Buffers for the data of a frame, compressed and not.
+    private byte[] compressed, raw;
+    private final Inflater inflater;
+
+    /**
+     * Open a replay log and read the headers of all frames.
+     * @param file The log to read
+     * @throws IOException If the file can't be read or isn't a replay log
+     */
+    public ReplayReader(File file) throws IOException {
+        access = new RandomAccessFile(file, "r");
+        channel = access.getChannel();
+        ByteBuffer start = ByteBuffer.allocate(16);
+        read(start, 0);
+        if(start.getInt() != ReplayRecorder.MAGIC) {
+            access.close();
+            throw new IOException(file + " is not a replay log");
+        }
+        int version = start.getInt();
+        if(version != ReplayRecorder.VERSION) {
+            access.close();
+            throw new IOException("Replay log version " + version + " is not supported");
+        }
+        depth = start.getInt();
+        width = start.getInt();
+        positions = new byte[depth * width];
+        compressed = new byte[1 << 16];
+        raw = new byte[1 << 16];
+        inflater = new Inflater();
+        current = -1;
+        index(16);
+    }
+
+    /**
+     * Read the header of every frame, starting at the given offset.
+     * @param offset Where the first frame starts
+     * @throws IOException If the file can't be read
+     */
+    private void index(long offset) throws IOException {
+        offsets = new long[256];
+        steps = new long[256];
+        counts = new long[256 * Species.COUNT];
+        keyframes = new int[16];
+        ByteBuffer header = ByteBuffer.allocate(ReplayRecorder.FRAME_HEADER);
+        long size = channel.size();
+        while(offset + ReplayRecorder.FRAME_HEADER <= size) {
+            header.clear();
+            read(header, offset);
+            byte type = header.get();
+            long step = header.getLong();
+            if(frames == offsets.length) {
+                offsets = Arrays.copyOf(offsets, frames * 2);
+                steps = Arrays.copyOf(steps, frames * 2);
+                counts = Arrays.copyOf(counts, frames * 2 * Species.COUNT);
+            }
+            for(int species = 0; species < Species.COUNT; species++) {
+                counts[frames * Species.COUNT + species] = header.getLong();
+            }
+            header.getInt();
+            long end = offset + ReplayRecorder.FRAME_HEADER + header.getInt();
+            if(end > size || (type != ReplayRecorder.KEYFRAME && (type != ReplayRecorder.DELTA || frames == 0))) {
+                break;
+            }
+            if(type == ReplayRecorder.KEYFRAME) {
+                if(keyframeCount == keyframes.length) {
+                    keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+                }
+                keyframes[keyframeCount++] = frames;
+            }
+            offsets[frames] = offset;
+            steps[frames] = step;
+            frames++;
+            offset = end;
+        }
+    }
+
+    /**
+     * Bring the positions to the given frame.
+     * @param frame The frame, from 0 up to getFrameCount()
+     * @throws IOException If the log can't be read or is damaged
+     */
+    public void seek(int frame) throws IOException {
+        if(frame < 0 || frame >= frames) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + frames);
+        }
+        int keyframe = keyframes[0];
+        for(int k = keyframeCount - 1; k >= 0; k--) {
+            if(keyframes[k] <= frame) {
+                keyframe = keyframes[k];
+                break;
+            }
+        }
+        int next;
+        if(current >= keyframe && current <= frame) {
+            next = current + 1;
+        }
+        else {
+            apply(keyframe);
+            next = keyframe + 1;
+        }
+        for(; next <= frame; next++) {
+            apply(next);
+        }
+        current = frame;
+    }
+
+    /**
+     * Apply one frame to the positions.
+     * @param frame The frame to apply, a keyframe or the frame after the current one
+     * @throws IOException If the log can't be read or is damaged
+     */
+    private void apply(int frame) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ReplayRecorder.FRAME_HEADER);
+        read(header, offsets[frame]);
+        byte type = header.get();
+        header.position(ReplayRecorder.FRAME_HEADER - 8);
+        int length = header.getInt();
+        int packed = header.getInt();
+        if(compressed.length < packed) {
+            compressed = new byte[packed];
+        }
+        read(ByteBuffer.wrap(compressed, 0, packed), offsets[frame] + ReplayRecorder.FRAME_HEADER);
+        byte[] data = type == ReplayRecorder.KEYFRAME ? positions : raw;
+        if(type == ReplayRecorder.KEYFRAME && length != positions.length) {
+            throw new IOException("Keyframe " + frame + " has " + length + " positions, the field has " + positions.length);
+        }
+        if(data.length < length) {
+            raw = new byte[length];
+            data = raw;
+        }
+        inflater.reset();
+        inflater.setInput(compressed, 0, packed);
+        try {
+            int inflated = 0;
+            while(inflated < length && !inflater.finished()) {
+                int count = inflater.inflate(data, inflated, length - inflated);
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if(inflated != length) {
+                throw new IOException("Frame " + frame + " is damaged");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Frame " + frame + " is damaged", e);
+        }
+
+        if(type == ReplayRecorder.DELTA) {
+            int index = 0;
+            int at = 0;
+            while(at < length) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[at++];
+                    gap |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while((b & 0x80) != 0);
+                index += gap;
+                if(index >= positions.length || positions[index] != data[at]) {
+                    throw new IOException("Frame " + frame + " doesn't follow the frame before it");
+                }
+                positions[index] = data[at + 1];
+                at += 2;
+            }
+        }
+    }
+
+    /**
+     * Read from the log until the buffer is full, and flip it.
+     * @param buffer The buffer to fill
+     * @param offset Where in the log to start reading
+     * @throws IOException If the log ends before the buffer is full
+     */
+    private void read(ByteBuffer buffer, long offset) throws IOException {
+        while(buffer.hasRemaining()) {
+            int count = channel.read(buffer, offset);
+            if(count < 0) {
+                throw new IOException("Unexpected end of the replay log");
+            }
+            offset += count;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Close the log.
+     * @throws IOException If the file can't be closed
+     */
+    public void close() throws IOException {
+        inflater.end();
+        access.close();
+    }
+
+    /**
+     * Copy the species code and mark bit of every position at the current frame,
+     * row after row, in the form Field.copyCells uses.
+     * @param destination An array of at least depth * width cells.
+     */
+    public void copyCells(int[] destination){
+        for(int index = 0; index < positions.length; index++) {
+            int code = positions[index] & 0xff;
+            destination[index] = (code & ~ReplayRecorder.MARK_BIT)
+                    | ((code & ReplayRecorder.MARK_BIT) != 0 ? Field.MARK : 0);
+        }
+    }
+
+    /**
+     * Find the first frame of the run a frame belongs to. A log holds more than one
+     * run when the recorded simulation was reset: the step goes back at the start of a run.
+     * @param frame The frame
+     * @return The first frame of its run
+     */
+    public int getRunStart(int frame){
+        while(frame > 0 && steps[frame] > steps[frame - 1]) {
+            frame--;
+        }
+        return frame;
+    }
+
+    /**
+     * @return The number of frames in the log.
+     */
+    public int getFrameCount(){
+        return frames;
+    }
+
+    /**
+     * @return The frame the positions are at, -1 before the first seek.
+     */
+    public int getFrame(){
+        return current;
+    }
+
+    /**
+     * @param frame The frame
+     * @return The step the frame was recorded at.
+     */
+    public long getStep(int frame){
+        return steps[frame];
+    }
+
+    /**
+     * Get the population of one species at a frame.
+     * @param frame The frame
+     * @param species The species code
+     * @return The number of sprites of that species.
+     */
+    public long getCount(int frame, int species){
+        return counts[frame * Species.COUNT + species];
+    }
+
+    /**
+     * @return The depth of the recorded field.
+     */
+    public int getDepth(){
+        return depth;
+    }
+
+    /**
+     * @return The width of the recorded field.
+     */
+    public int getWidth(){
+        return width;
+    }
+}
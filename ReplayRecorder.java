@@ -0,0 +1,214 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Records a run to a replay log: one frame per recorded step, holding only the
+ * positions that changed since the previous frame. Every KEYFRAME_INTERVAL frames,
+ * and whenever the step goes back (a reset), the whole field is written instead,
+ * so a reader can seek without going through the log from the start.
+ *
+ * Road edits between two steps are changes of positions like any other, they are
+ * part of the next frame.
+ *
+ * The log is only ever appended to and every frame is compressed on its own, so
+ * a run that is killed loses at most the frame it was writing. The layout, big
+ * endian: the int MAGIC, the int VERSION, the int depth and width, then frames.
+ * A frame is the byte KEYFRAME or DELTA, the long step, one long count per species
+ * code, the int length of the frame data, the int length of the compressed data
+ * and then the data, compressed with deflate. A position is stored as one byte,
+ * its species code plus MARK_BIT if it is marked. The data of a keyframe is the byte
+ * of every position, row after row. The data of a delta is one entry per changed
+ * position: the distance to the previous changed position (the first is counted
+ * from position 0) as an unsigned variable length int, the old byte and the new byte.
+ */
+public class ReplayRecorder {
+    // The first int of a replay log, "FXRL".
+    public static final int MAGIC = 0x4658524c;
+    // The version of the layout.
+    public static final int VERSION = 1;
+    // Frame types.
+    public static final byte KEYFRAME = 1;
+    public static final byte DELTA = 2;
+    // The bit that marks a position in the byte of a position.
+    public static final int MARK_BIT = 0x80;
+    // The number of bytes in a frame before its data.
+    public static final int FRAME_HEADER = 1 + 8 + 8 * Species.COUNT + 4 + 4;
+    // The largest number of frames between two keyframes.
+    public static final int KEYFRAME_INTERVAL = 100;
+
+    // The channel of the log.
+    private final FileChannel channel;
+    // The depth and width of the recorded field.
+    private final int depth, width;
+    // The cells of the field at this step, as the field hands them out.
+    private final int[] cells;
+    // The byte of every position at the last recorded frame.
+    private final byte[] previous;
+    // The frame data before it is compressed, and after.
+    private byte[] raw, compressed;
+    // The compressor, reset for every frame.
+    private final Deflater deflater;
+    // The header of a frame.
+    private final ByteBuffer header;
+    // The number of frames since the last keyframe, -1 before the first frame.
+    private int sinceKeyframe;
+    // The step of the last recorded frame.
+    private long lastStep;
+
+    /**
+     * Start a new replay log for a field of the given size. An existing file is overwritten.
+     * @param file The file to write
+     * @param depth The depth of the field
+     * @param width The width of the field
+     * @throws IOException If the file can't be created
+     */
+    public ReplayRecorder(File file, int depth, int width) throws IOException {
+        if((long) depth * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("A field of " + depth + "x" + width + " is too large to record");
+        }
+        this.depth = depth;
+        this.width = width;
+        cells = new int[depth * width];
+        previous = new byte[depth * width];
+        raw = new byte[1 << 16];
+        compressed = new byte[1 << 16];
+        deflater = new Deflater(Deflater.BEST_SPEED);
+        header = ByteBuffer.allocate(FRAME_HEADER);
+        sinceKeyframe = -1;
+        channel = new FileOutputStream(file).getChannel();
+        ByteBuffer start = ByteBuffer.allocate(16);
+        start.putInt(MAGIC).putInt(VERSION).putInt(depth).putInt(width);
+        start.flip();
+        write(start);
+    }
+
+    /**
+     * Append a frame with the state of the field. Must be called between two steps.
+     * @param field The field to record, of the size the log was made for
+     * @param step The step the field is at
+     * @throws IOException If the frame can't be written
+     */
+    public synchronized void record(Field field, long step) throws IOException {
+        field.copyCells(cells);
+        int length;
+        int packed;
+        byte type;
+        if(sinceKeyframe < 0 || sinceKeyframe + 1 >= KEYFRAME_INTERVAL || step <= lastStep) {
+            type = KEYFRAME;
+            for(int index = 0; index < cells.length; index++) {
+                previous[index] = encode(cells[index]);
+            }
+            length = previous.length;
+            packed = compress(previous, length);
+            sinceKeyframe = 0;
+        }
+        else {
+            type = DELTA;
+            length = 0;
+            int last = 0;
+            for(int index = 0; index < cells.length; index++) {
+                byte code = encode(cells[index]);
+                if(code != previous[index]) {
+                    if(raw.length - length < 7) {
+                        raw = Arrays.copyOf(raw, raw.length * 2);
+                    }
+                    int gap = index - last;
+                    while((gap & ~0x7f) != 0) {
+                        raw[length++] = (byte) ((gap & 0x7f) | 0x80);
+                        gap >>>= 7;
+                    }
+                    raw[length++] = (byte) gap;
+                    raw[length++] = previous[index];
+                    raw[length++] = code;
+                    previous[index] = code;
+                    last = index;
+                }
+            }
+            packed = compress(raw, length);
+            sinceKeyframe++;
+        }
+        lastStep = step;
+
+        header.clear();
+        header.put(type).putLong(step);
+        for(int species = 0; species < Species.COUNT; species++) {
+            header.putLong(field.getCount(species));
+        }
+        header.putInt(length).putInt(packed);
+        header.flip();
+        write(header);
+        write(ByteBuffer.wrap(compressed, 0, packed));
+    }
+
+    /**
+     * Close the log.
+     * @throws IOException If the file can't be closed
+     */
+    public synchronized void close() throws IOException {
+        deflater.end();
+        channel.close();
+    }
+
+    /**
+     * Compress the data of a frame into compressed.
+     * @param data The frame data
+     * @param length The number of bytes of data
+     * @return The number of compressed bytes
+     */
+    private int compress(byte[] data, int length){
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        int written = 0;
+        while(!deflater.finished()) {
+            if(written == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            written += deflater.deflate(compressed, written, compressed.length - written);
+        }
+        return written;
+    }
+
+    /**
+     * Write all of a buffer to the log.
+     * @param buffer The bytes to write
+     * @throws IOException If they can't be written
+     */
+    private void write(ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Turn the cell of a field into the byte of a position.
+     * @param cell The species code, possibly combined with Field.MARK
+     * @return The byte of the position
+     */
+    private static byte encode(int cell){
+        int code = cell & Field.SPECIES_MASK;
+        if((cell & Field.MARK) != 0) {
+            code |= MARK_BIT;
+        }
+        return (byte) code;
+    }
+
+    /**
+     * @return The depth of the recorded field.
+     */
+    public int getDepth(){
+        return depth;
+    }
+
+    /**
+     * @return The width of the recorded field.
+     */
+    public int getWidth(){
+        return width;
+    }
+}
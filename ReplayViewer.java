@@ -0,0 +1,232 @@
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Plays a replay log back in a FieldView and a GraphView, without running the
+ * simulation. The speed is set in steps per second and the slider seeks to any
+ * frame of the log. Everything happens on the event dispatch thread.
+ */
+public class ReplayViewer extends JFrame implements ActionListener, ChangeListener {
+    // The number of times per second the replay is advanced and painted
+    private static final int FRAME_RATE = 25;
+    // The slowest and fastest speed, as powers of two steps per second
+    private static final int MIN_SPEED = 0;
+    private static final int MAX_SPEED = 12;
+
+    // The log that is played
+    private ReplayReader replay;
+    private FieldView fieldView;
+    private GraphView graph;
+    // The positions of the frame that is shown
+    private FieldSnapshot snapshot;
+    // The population of a frame, handed to the graph
+    private long[] counts;
+
+    private JButton playPauseButton = new JButton("Play");
+    private JSlider speedSlider = new JSlider(MIN_SPEED, MAX_SPEED, 3);
+    private JLabel speedLabel = new JLabel();
+    private JSlider seekSlider;
+    private JLabel stepLabel = new JLabel();
+
+    // True while the replay is playing
+    private boolean playing;
+    // The frames still to be played before the next whole frame, speeds below the frame rate need more than one tick
+    private double pending;
+    // The frame the graph was last filled up to
+    private int graphFrame;
+    // True while the seek slider is moved by the replay itself
+    private boolean advancing;
+
+    /**
+     * Create a viewer and show the first frame of a replay.
+     * @param replay The replay to play, holding at least one frame
+     */
+    public ReplayViewer(ReplayReader replay)
+    {
+        super("Fox and Rabbit Replay");
+        this.replay = replay;
+
+        fieldView = new FieldView(replay.getDepth(), replay.getWidth());
+        snapshot = new FieldSnapshot(replay.getDepth(), replay.getWidth());
+        counts = new long[Species.COUNT];
+        graph = new GraphView("Field Statistics");
+        graph.pack();
+
+        seekSlider = new JSlider(0, replay.getFrameCount() - 1, 0);
+        seekSlider.addChangeListener(this);
+        speedSlider.addChangeListener(this);
+        playPauseButton.addActionListener(this);
+
+        JPanel controls = new JPanel();
+        controls.setLayout(new BoxLayout(controls, BoxLayout.X_AXIS));
+        controls.add(playPauseButton);
+        controls.add(new JLabel("  Speed: "));
+        controls.add(speedSlider);
+        controls.add(speedLabel);
+        controls.add(new JLabel("  Step: "));
+        controls.add(seekSlider);
+        controls.add(stepLabel);
+
+        JPanel southPanel = new JPanel();
+        southPanel.setLayout(new BorderLayout());
+        southPanel.add(controls, BorderLayout.NORTH);
+        southPanel.add(graph.panel, BorderLayout.CENTER);
+        southPanel.setPreferredSize(new Dimension(getWidth(), 300));
+
+        Container contents = getContentPane();
+        contents.setLayout(new BorderLayout());
+        contents.add(fieldView, BorderLayout.CENTER);
+        contents.add(southPanel, BorderLayout.SOUTH);
+
+        graphFrame = -1;
+        showFrame(0);
+        showSpeed();
+
+        pack();
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setVisible(true);
+
+        Timer timer = new Timer(1000 / FRAME_RATE, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                tick();
+            }});
+        timer.start();
+    }
+
+    /**
+     * Advance the replay by the number of frames one tick takes at the current speed,
+     * and paint the field when it changed size.
+     */
+    private void tick(){
+        if(playing) {
+            pending += (double) (1 << speedSlider.getValue()) / FRAME_RATE;
+            int frames = (int) pending;
+            pending -= frames;
+            int frame = Math.min(replay.getFrame() + frames, replay.getFrameCount() - 1);
+            if(frame != replay.getFrame()) {
+                showFrame(frame);
+            }
+            if(frame == replay.getFrameCount() - 1) {
+                setPlaying(false);
+            }
+        }
+        if(fieldView.isResized()) {
+            paintField();
+        }
+    }
+
+    /**
+     * Show a frame of the replay: paint its positions and bring the graph up to it.
+     * The frames the graph is missing are added at once, so seeking back in a long
+     * run costs time linear in the length of the run.
+     * @param frame The frame to show
+     */
+    private void showFrame(int frame){
+        try {
+            replay.seek(frame);
+        } catch (IOException e) {
+            setPlaying(false);
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Replay", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Going back, or to another run, the graph is drawn again from the start of the run
+        int from = graphFrame + 1;
+        if(frame < graphFrame || replay.getRunStart(frame) > graphFrame) {
+            publish(-1);
+            from = replay.getRunStart(frame);
+        }
+        List<StepSnapshot> steps = new ArrayList<StepSnapshot>(frame - from + 1);
+        for(int f = from; f <= frame; f++) {
+            steps.add(snapshotOf(f));
+        }
+        graph.addSteps(steps);
+        graphFrame = frame;
+
+        snapshot.capture(replay, frame);
+        paintField();
+        stepLabel.setText(" " + replay.getStep(frame));
+        advancing = true;
+        seekSlider.setValue(frame);
+        advancing = false;
+    }
+
+    /**
+     * Hand the population of a frame to the graph.
+     * @param frame The frame, -1 to clear the graph
+     */
+    private void publish(int frame){
+        graph.stepCompleted(snapshotOf(frame));
+    }
+
+    /**
+     * @param frame The frame, -1 for an empty step 0
+     * @return The step and population of the frame, the way a running simulation publishes them.
+     */
+    private StepSnapshot snapshotOf(int frame){
+        long step = 0;
+        for(int species = 0; species < Species.COUNT; species++) {
+            counts[species] = frame < 0 ? 0 : replay.getCount(frame, species);
+        }
+        if(frame >= 0) {
+            step = replay.getStep(frame);
+        }
+        return new StepSnapshot((int) step, 0, !playing, counts);
+    }
+
+    /**
+     * Paint the frame that is shown.
+     */
+    private void paintField(){
+        fieldView.preparePaint();
+        fieldView.drawMarks(snapshot);
+        fieldView.repaint();
+    }
+
+    /**
+     * Show the current speed next to its slider.
+     */
+    private void showSpeed(){
+        speedLabel.setText(" " + (1 << speedSlider.getValue()) + " steps/s");
+    }
+
+    /**
+     * Start or stop playing.
+     * @param playing True to play
+     */
+    private void setPlaying(boolean playing){
+        this.playing = playing;
+        pending = 0;
+        playPauseButton.setText(playing ? "Pause" : "Play");
+    }
+
+    /**
+     * The play button starts and stops playing, at the end of the replay it starts again from the first frame.
+     * @param event The fired event
+     */
+    public void actionPerformed(ActionEvent event) {
+        if(!playing && replay.getFrame() == replay.getFrameCount() - 1) {
+            showFrame(0);
+        }
+        setPlaying(!playing);
+    }
+
+    /**
+     * Moving the seek slider shows the chosen frame, moving the speed slider changes the speed.
+     * @param event The fired event
+     */
+    public void stateChanged(ChangeEvent event) {
+        if(event.getSource() == speedSlider) {
+            showSpeed();
+        } else if(!advancing && seekSlider.getValue() != replay.getFrame()) {
+            showFrame(seekSlider.getValue());
+        }
+    }
+}
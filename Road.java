@@ -1,5 +1,3 @@
-import java.awt.*;
-
 /**
  * A road is a sprite, it's drawn on the field and can't be stepped on
  * by acting sprite. The road itself is not an actor, it remains stationary
@@ -13,6 +11,12 @@ public class Road extends FieldSprite {
 	 */
     public Road(Field field, Location location) {
         super(field, location);
-        markColor = Color.darkGray;
     }
+
+	/**
+	 * @return The species code of a road.
+	 */
+	public int getSpecies() {
+		return Species.ROAD;
+	}
 }
@@ -1,24 +1,30 @@
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Simulation holds the data about the simulation. It records the current step, the total number of steps
  * And wether the simulation is paused or not.
+ * Changes are not pushed to listeners one by one, instead the state is published once per step
+ * as a StepSnapshot.
  *
  * @author martin poelman
  * @version 0.1, 15-jun-2010 15:30:27
  */
-public class Simulation extends Observable {
-    private int numSteps;
-    private int step;
-    private boolean paused;
+public class Simulation {
+    // Volatile, the counters are changed by the GUI and read by the simulator thread
+    private volatile int numSteps;
+    private volatile int step;
+    private volatile boolean paused;
+    // Everything that follows the simulation, called once per published step
+    private List<StepListener> listeners;
 
     /**
      * Default constructor
      */
     public Simulation(){
-        super();
         numSteps = 0;
         step = 0;
+        listeners = new CopyOnWriteArrayList<StepListener>();
     }
 
     /**
@@ -44,13 +50,11 @@ public class Simulation extends Observable {
     }
 
     /**
-     * Pauses or unpauses the simulation according to the supplied boolean argument, then it notifies all
-     * observers.
+     * Pauses or unpauses the simulation according to the supplied boolean argument.
      * @param paused If true the thread will be paused, if false it wil be resumed
      */
     public void setPaused(boolean paused){
         this.paused = paused;
-        notifyObservers();
     }
 
     /**
@@ -63,13 +67,12 @@ public class Simulation extends Observable {
     }
 
     /**
-     * Sets the planned number of steps and notifies all the observers.
+     * Sets the planned number of steps.
      *
      * @param numSteps Supply the number of steps.
      */
     public void setNumSteps(int numSteps) {
         this.numSteps = numSteps;
-        notifyObservers();
     }
 
     /**
@@ -94,14 +97,24 @@ public class Simulation extends Observable {
      */
     public void setStep(int step) {
         this.step = step;
-        notifyObservers();
     }
 
     /**
-     * Overwriting the super class method to make notifying observers quicker.
+     * Add a listener that is told about every published step.
+     * @param listener The listener to add
      */
-    public void notifyObservers() {
-        setChanged();
-        super.notifyObservers();
+    public void addStepListener(StepListener listener){
+        listeners.add(listener);
     }
-}
\ No newline at end of file
+
+    /**
+     * Publish the current state to all listeners as one immutable snapshot.
+     * @param field The field whose population is part of the snapshot
+     */
+    public void publish(Field field){
+        StepSnapshot snapshot = new StepSnapshot(this, field);
+        for(StepListener listener : listeners){
+            listener.stepCompleted(snapshot);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * The configuration of one run: the parameters of every species and the starting
+ * population. A SimulationConfig never changes; the with methods make a changed
+ * copy. An engine takes a new configuration at the start of a step, so a step is
+ * always run with one configuration, and engines with different configurations
+ * can run side by side.
+ */
+public class SimulationConfig {
+    // The configuration a run starts with, the values the animals and the populator define.
+    public static final SimulationConfig DEFAULT = new SimulationConfig();
+
+    // The parameters of every species, indexed by species code.
+    private final SpeciesParameters[] species;
+    // The probability that a rabbit, fox or bear will be created in any given grid position.
+    private final double rabbitProbability, foxProbability, bearProbability;
+    // The number of hunters to start with.
+    private final double hunters;
+    // The probability that a rabbit starts with myxomatosis.
+    private final double infectionProbability;
+
+    /**
+     * Create the default configuration.
+     */
+    private SimulationConfig(){
+        species = new SpeciesParameters[Species.COUNT];
+        for(int code = 0; code < Species.COUNT; code++){
+            species[code] = SpeciesParameters.NONE;
+        }
+        int[] food = new int[Species.COUNT];
+        species[Species.RABBIT] = new SpeciesParameters(Rabbit.BREEDING_AGE, Rabbit.MAX_AGE,
+                Rabbit.BREEDING_PROBABILITY, Rabbit.MAX_LITTER_SIZE, Rabbit.MYXO_GENE_PERCENTAGE, food);
+        food[Species.RABBIT] = Fox.RABBIT_FOOD_VALUE;
+        species[Species.FOX] = new SpeciesParameters(Fox.BREEDING_AGE, Fox.MAX_AGE,
+                Fox.BREEDING_PROBABILITY, Fox.MAX_LITTER_SIZE, 0, food);
+        food[Species.RABBIT] = Bear.RABBIT_FOOD_VALUE;
+        food[Species.FOX] = Bear.FOX_FOOD_VALUE;
+        species[Species.BEAR] = new SpeciesParameters(Bear.BREEDING_AGE, Bear.MAX_AGE,
+                Bear.BREEDING_PROBABILITY, Bear.MAX_LITTER_SIZE, 0, food);
+        rabbitProbability = Populator.RABBIT_CREATION_PROBABILITY;
+        foxProbability = Populator.FOX_CREATION_PROBABILITY;
+        bearProbability = Populator.BEAR_CREATION_PROBABILITY;
+        hunters = Populator.NUMBER_OF_HUNTERS;
+        infectionProbability = Populator.MYXOMATOSIS_INFECTION_PROBABILITY;
+    }
+
+    /**
+     * Create a configuration from all of its values.
+     * @param species The parameters of every species, indexed by species code, the array is copied
+     * @param rabbitProbability The probability that a rabbit is created in a position
+     * @param foxProbability The probability that a fox is created in a position
+     * @param bearProbability The probability that a bear is created in a position
+     * @param hunters The number of hunters to start with
+     * @param infectionProbability The probability that a rabbit starts with myxomatosis
+     */
+    private SimulationConfig(SpeciesParameters[] species, double rabbitProbability, double foxProbability,
+                             double bearProbability, double hunters, double infectionProbability){
+        this.species = species.clone();
+        this.rabbitProbability = rabbitProbability;
+        this.foxProbability = foxProbability;
+        this.bearProbability = bearProbability;
+        this.hunters = hunters;
+        this.infectionProbability = infectionProbability;
+    }
+
+    /**
+     * Make a copy with other parameters for one species.
+     * @param code The species code
+     * @param parameters The new parameters of the species
+     * @return The changed copy
+     */
+    public SimulationConfig withSpecies(int code, SpeciesParameters parameters){
+        SpeciesParameters[] changed = species.clone();
+        changed[code] = parameters;
+        return new SimulationConfig(changed, rabbitProbability, foxProbability, bearProbability,
+                hunters, infectionProbability);
+    }
+
+    /**
+     * Make a copy with another starting population.
+     * @param rabbit Percentage of positions that start with a rabbit
+     * @param fox Percentage of positions that start with a fox
+     * @param bear Percentage of positions that start with a bear
+     * @param hunter The number of hunters
+     * @return The changed copy
+     * @throws IllegalArgumentException If one of the values is negative
+     */
+    public SimulationConfig withPopulation(double rabbit, double fox, double bear, double hunter){
+        if(rabbit < 0 || fox < 0 || bear < 0 || hunter < 0){
+            throw new IllegalArgumentException("Population values can't be negative");
+        }
+        return new SimulationConfig(species, rabbit / 100, fox / 100, bear / 100, hunter, infectionProbability);
+    }
+
+    /**
+     * @param code The species code
+     * @return The parameters of the species.
+     */
+    public SpeciesParameters getSpecies(int code){
+        return species[code];
+    }
+
+    /**
+     * @return The probability that a rabbit is created in a position.
+     */
+    public double getRabbitProbability(){
+        return rabbitProbability;
+    }
+
+    /**
+     * @return The probability that a fox is created in a position.
+     */
+    public double getFoxProbability(){
+        return foxProbability;
+    }
+
+    /**
+     * @return The probability that a bear is created in a position.
+     */
+    public double getBearProbability(){
+        return bearProbability;
+    }
+
+    /**
+     * @return The number of hunters to start with.
+     */
+    public double getHunters(){
+        return hunters;
+    }
+
+    /**
+     * @return The probability that a rabbit starts with myxomatosis.
+     */
+    public double getInfectionProbability(){
+        return infectionProbability;
+    }
+}
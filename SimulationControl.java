@@ -1,8 +1,10 @@
 import java.awt.event.*;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.io.File;
+import java.io.IOException;
 import java.util.ConcurrentModificationException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.JMException;
 
 /**
  * A simple predator-prey simulator, based on a rectangular field
@@ -17,37 +19,48 @@ public class SimulationControl extends WindowAdapter implements ActionListener {
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 60;
     
-    // List of actors in the field.
-    private List<Actor> actors;
+    // The engine that runs the simulation steps.
+    private SimulationEngine engine;
     // The current state of the field.
     private Field field;
     // A graphical view of the simulation.
     private SimulationView view;
-    // Populator contains the tools needed to initialize the actor population
-    private Populator populator;
     // Simulation contains data about the current state of the simulation
     private Simulation simulation;
     // SimutorThread makes sure the simulation kan run independently from the menu
     private SimulatorThread simulator;
+    // Records every step to a replay log, null when the run isn't recorded
+    private volatile ReplayRecorder recorder;
+    // Times the steps and what the simulator thread does around them, for jconsole
+    private EngineMetrics metrics;
+    // Set when a reset was asked for, the simulator thread resets between steps
+    private final AtomicBoolean pendingReset = new AtomicBoolean();
     
     /**
      * Create a simulation field with the given size.
      */
     public SimulationControl(){
-        actors = new ArrayList<Actor>();
-
         //Create te simulator, the thread that keeps our simulation running
         simulator = new SimulatorThread();
 
         //Create the required models
-        field = new Field(DEFAULT_DEPTH, DEFAULT_WIDTH);
-        populator = new Populator(this,field,actors);
+        engine = new SimulationEngine(DEFAULT_DEPTH, DEFAULT_WIDTH);
+        field = engine.getField();
         simulation = new Simulation();
+
+        //Let the engine time its steps, so a live run can be watched with jconsole
+        metrics = new EngineMetrics();
+        engine.setMetrics(metrics);
+        try {
+            metrics.register();
+        } catch (JMException e) {
+            e.printStackTrace(System.out); //The simulation runs fine without, but we want to know
+        }
         
         // Create a view of the state of each location in the field.
         view = new SimulationView(DEFAULT_DEPTH, DEFAULT_WIDTH, field, simulation, this);
 
-        //Setup a valid starting point.
+        //Setup a valid starting point, the simulator thread makes it before anything else.
         reset();
 
         //Start the thread
@@ -63,24 +76,89 @@ public class SimulationControl extends WindowAdapter implements ActionListener {
     }
 
     /**
-     * Gets the population object
-     * @return The population object
+     * Gets the configuration of the simulation
+     * @return The newest configuration
      */
-    public Populator getPopulator()
+    public SimulationConfig getConfig()
     {
-        return populator;
+        return engine.getConfig();
+    }
+
+    /**
+     * Sets the configuration of the simulation, it is taken at the start of the next step or reset
+     * @param config The new configuration
+     */
+    public void setConfig(SimulationConfig config)
+    {
+        engine.setConfig(config);
     }
     
     /**
-     * Reset the simulation to a starting position.
+     * Puts a road on the given location. It is placed by the simulator thread before the next
+     * step, or within a moment when the simulation is paused.
+     * @param location The location of the road
+     */
+    public void addRoad(Location location)
+    {
+        engine.addRoad(location);
+    }
+
+    /**
+     * Reset the simulation to a starting position. The simulation is paused right away,
+     * the field is reset by the simulator thread before its next step, or within a moment
+     * when the simulation is paused.
      */
     public void reset()
     {
         simulation.pauseThread();
-        simulation.setNumSteps(0);
-        simulation.setStep(0);
-        actors.clear();
-        populator.populate();
+        pendingReset.set(true);
+    }
+
+    /**
+     * Reset the simulation if that was asked for since the last call. Only the simulator
+     * thread calls this, so a reset never happens in the middle of a step.
+     */
+    private void takeReset()
+    {
+        if(pendingReset.getAndSet(false)){
+            simulation.pauseThread();
+            simulation.setNumSteps(0);
+            simulation.setStep(0);
+            //Every reset starts a new run, with a new seed
+            engine.setSeed(new Random().nextLong());
+            engine.reset();
+            record(0);
+            simulation.publish(field);
+        }
+    }
+
+    /**
+     * Record this run, and every run after a reset, to a replay log that can be played
+     * back with ReplayViewer. The current state is the first frame.
+     * @param file The log to write, an existing file is overwritten
+     * @throws IOException If the log can't be created
+     */
+    public void startRecording(File file) throws IOException {
+        ReplayRecorder recorder = new ReplayRecorder(file, field.getDepth(), field.getWidth());
+        recorder.record(field, simulation.getStep());
+        this.recorder = recorder;
+    }
+
+    /**
+     * Add the current state of the field to the replay log, if the run is recorded.
+     * Recording stops when the log can't be written.
+     * @param step The step the field is at
+     */
+    private void record(int step){
+        ReplayRecorder recorder = this.recorder;
+        if(recorder != null){
+            try {
+                recorder.record(field, step);
+            } catch (IOException e) {
+                e.printStackTrace(System.out);
+                this.recorder = null;
+            }
+        }
     }
 
     /**
@@ -117,7 +195,10 @@ public class SimulationControl extends WindowAdapter implements ActionListener {
             simulation.pauseThread();
         } else if ("Reset simulation".equals(actionCommand)) {
             reset();
+            return;
         }
+        //Let the views show the changed step counters or pause state
+        simulation.publish(field);
     }
 
     /**
@@ -163,12 +244,14 @@ public class SimulationControl extends WindowAdapter implements ActionListener {
                 int numSteps;
                 boolean paused;
                 boolean wasRunning;
-                List<Animal> newAnimals;
-                Actor actor;
 
                 //Always keep looping unless the thread is killed
                 while(!die){
 
+                    //Reset when asked to, then place the roads drawn since the last iteration, also while paused
+                    takeReset();
+                    engine.placeRoads();
+
                     //Set the variables
                     step = simulation.getStep();
                     numSteps = simulation.getNumSteps();
@@ -179,32 +262,38 @@ public class SimulationControl extends WindowAdapter implements ActionListener {
                     //  - The maximum amount of steps is reached
                     //  - The user pauses the simulation
                     //  - The simulation is no longer viable (only one animal type remains)
-                    running = step < numSteps && !paused && view.isViable(field);
+                    //Each phase of a real step is timed for the metrics, idle iterations are not.
+                    running = step < numSteps && !paused;
+                    if(running){
+                        PhaseEvent phase = PhaseEvent.start(step, PhaseEvent.STATS);
+                        long start = System.nanoTime();
+                        running = view.isViable(field);
+                        metrics.record(EngineMetrics.VIABLE, System.nanoTime() - start);
+                        phase.commit();
+                    }
                     if(running){
                         step++;
-
-                        // Provide space for newborn animals.
-                        newAnimals = new ArrayList<Animal>();
-                        // Let all actors act.
-                        for(Iterator<Actor> it = actors.iterator(); it.hasNext(); ) {
-                            actor = it.next();
-                            actor.act(newAnimals);
-                            if(!actor.isAlive()) { //If the actor is no longer alive remove it from the list
-                                it.remove();
-                            }
-                        }
-
-                        // Add the newly born animals to the main lists.
-                        actors.addAll(newAnimals);
+                        engine.step();
+                        long start = System.nanoTime();
+                        record(step);
+                        metrics.record(EngineMetrics.RECORD, System.nanoTime() - start);
                     }
 
-                    //If the simulator was running we want to set the step one more time for the perfect observer states
+                    //If the simulator was running we publish the finished step, once, to all listeners
                     if(wasRunning){
+                        long start = System.nanoTime();
                         simulation.setStep(step);
+                        simulation.publish(field);
+                        metrics.record(EngineMetrics.PUBLISH, System.nanoTime() - start);
                     }
 
-                    //Each iteration we refresh even if we're not running, we do this to keep the paused field in the right ratio when resizing
-                    view.showStatus(field);
+                    //Each iteration we hand a snapshot to the view even if we're not running, so a reset shows up while paused.
+                    //Painting happens on the event dispatch thread and never holds up the simulation.
+                    long start = System.nanoTime();
+                    view.showStatus(field, step);
+                    if(running || wasRunning){
+                        metrics.record(EngineMetrics.SHOW, System.nanoTime() - start);
+                    }
 
                     //Take a super short nap before we iterate again.
                     sleep(50);
@@ -0,0 +1,545 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The engine runs the simulation itself: it owns the field and the actors
+ * and knows how to make one step. It has no user interface, so it can be
+ * driven by the GUI as well as by a headless batch run.
+ *
+ * A step splits the field into horizontal strips of STRIP_HEIGHT rows. Actors
+ * are sorted into the strip they start the step in. All even strips act first,
+ * then all odd strips. Two strips of the same phase are a whole strip apart,
+ * and no actor reaches further than MAX_REACH rows from where it started, so
+ * strips of one phase never touch the same position and can act on different
+ * threads at the same time.
+ *
+ * Before an actor acts, the random generator of the thread is keyed with the
+ * seed, the step and the id of the actor. Together with the fixed strip order
+ * this makes a run with a given seed give the same results on any number of threads.
+ *
+ * The parameters of the run come from a SimulationConfig. A new configuration can be
+ * set at any time, from any thread; it is taken at the start of the next step or reset.
+ * Roads drawn by the user are queued the same way and placed by the thread that steps.
+ */
+public class SimulationEngine {
+    // The furthest any actor reads or changes the field, measured from where it starts the step.
+    // A rabbit moves one and then infects one further. Hunters shoot before the strips act, see KillZone.
+    public static final int MAX_REACH = 2;
+    // The height of a strip, the smallest height that keeps strips of one phase apart.
+    public static final int STRIP_HEIGHT = 2 * MAX_REACH;
+
+    // The actors the populator creates on a reset, before they are sorted into the strips.
+    private List<Actor> population;
+    // The current state of the field.
+    private Field field;
+    // Populator contains the tools needed to initialize the actor population
+    private Populator populator;
+    // Statistics about the field, used to decide if the simulation is viable
+    private FieldStats stats;
+    // The actors of every strip. An actor stays in its list from step to step until it
+    // dies or moves to another strip.
+    private List<List<Actor>> strips;
+    // The animals born in every strip during the current step.
+    private List<List<Animal>> newborns;
+    // Actors that left their strip during the current step, reused every step.
+    private List<Actor> movers;
+    // The number of actors in all strips together.
+    private int actorCount;
+    // The hunters, which are also in the strips. They never die.
+    private List<Hunter> hunters;
+    // Computes what all hunters shoot at the start of a step.
+    private KillZone killZone;
+    // The pool strips act on, null if the engine steps on the calling thread only.
+    private ForkJoinPool pool;
+    // The seed of the run.
+    private long seed;
+    // The number of steps made since the last reset.
+    private long stepCount;
+    // Where a record of every step goes, null if steps aren't recorded.
+    private StatsExporter exporter;
+    // Times the phases of every step, null when nobody watches
+    private EngineMetrics metrics;
+    // The population of every species at the start of the step, to spot die-offs.
+    private long[] countsBefore;
+    // The flight recorder event of the current wave of myxomatosis, null between waves.
+    private InfectionWaveEvent wave;
+    // The configuration the run uses.
+    private SimulationConfig config;
+    // A configuration that was set and not taken yet, null if there is none.
+    private final AtomicReference<SimulationConfig> pendingConfig;
+    // Roads added since they were last placed, see addRoad.
+    private final ConcurrentLinkedQueue<Location> pendingRoads;
+
+    /**
+     * Create an engine with an empty field of the given size, that steps on the calling thread.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public SimulationEngine(int depth, int width){
+        this(depth, width, 1);
+    }
+
+    /**
+     * Create an engine with an empty field of the given size.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param threads The number of threads a step may use.
+     */
+    public SimulationEngine(int depth, int width, int threads){
+        this(new Field(depth, width), threads);
+    }
+
+    /**
+     * Create an engine on the given empty field. A field whose store can't be updated
+     * in parallel is always stepped on the calling thread.
+     * @param field The field to run on.
+     * @param threads The number of threads a step may use.
+     */
+    public SimulationEngine(Field field, int threads){
+        this.field = field;
+        population = new ArrayList<Actor>();
+        movers = new ArrayList<Actor>();
+        hunters = new ArrayList<Hunter>();
+        killZone = new KillZone();
+        populator = new Populator(field, population);
+        stats = new FieldStats(field);
+        countsBefore = new long[Species.COUNT];
+
+        int stripCount = (field.getDepth() + STRIP_HEIGHT - 1) / STRIP_HEIGHT;
+        strips = new ArrayList<List<Actor>>(stripCount);
+        newborns = new ArrayList<List<Animal>>(stripCount);
+        for(int strip = 0; strip < stripCount; strip++){
+            strips.add(new ArrayList<Actor>());
+            newborns.add(new ArrayList<Animal>());
+        }
+        // Only a store that can be changed row by row can be stepped on several threads.
+        if(threads > 1 && stripCount > 2 && field.supportsParallelUpdate()){
+            pool = new ForkJoinPool(threads);
+        }
+        seed = new Random().nextLong();
+        pendingConfig = new AtomicReference<SimulationConfig>();
+        pendingRoads = new ConcurrentLinkedQueue<Location>();
+        useConfig(SimulationConfig.DEFAULT);
+    }
+
+    /**
+     * Set the seed the next reset starts from.
+     * @param seed The seed of the run
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return The seed of the run.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The number of steps made since the last reset.
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Set the configuration of the run. It is taken at the start of the next step or reset,
+     * a step never sees part of one configuration and part of another.
+     * @param config The new configuration
+     */
+    public void setConfig(SimulationConfig config) {
+        pendingConfig.set(config);
+    }
+
+    /**
+     * @return The newest configuration, also when it wasn't taken yet.
+     */
+    public SimulationConfig getConfig() {
+        SimulationConfig pending = pendingConfig.get();
+        return pending != null ? pending : config;
+    }
+
+    /**
+     * Take the configuration that was set since the last step, if there is one.
+     */
+    private void takeConfig() {
+        SimulationConfig pending = pendingConfig.getAndSet(null);
+        if(pending != null){
+            useConfig(pending);
+        }
+    }
+
+    /**
+     * Put a road on a location. Can be called at any time, from any thread; the road
+     * is placed at the start of the next step, or earlier by placeRoads.
+     * @param location The location of the road
+     */
+    public void addRoad(Location location) {
+        pendingRoads.add(location);
+    }
+
+    /**
+     * Place the roads that were added since the last step. Must be called from the
+     * thread that steps, between steps.
+     */
+    public void placeRoads() {
+        Location location;
+        while((location = pendingRoads.poll()) != null){
+            placeRoad(location);
+        }
+    }
+
+    /**
+     * Put a road on the given location, but only if there's not a hunter on it. An animal
+     * on the location is killed; it leaves its strip at the end of the next step.
+     * @param location The location of the road
+     */
+    private void placeRoad(Location location) {
+        int species = field.getSpeciesAt(location.getRow(), location.getCol());
+        if(species != Species.HUNTER) {
+            if(Species.isAnimal(species)){
+                ((Animal) field.getSpriteAt(location)).setDead();
+            }
+            field.clear(location);
+            field.setLocation(location, new Road(field, location));
+        }
+    }
+
+    /**
+     * Start using a configuration: hand the parameters of every species to its store.
+     * @param config The configuration
+     */
+    private void useConfig(SimulationConfig config) {
+        this.config = config;
+        for(int species = 0; species < Species.COUNT; species++){
+            field.getStore(species).setParameters(config.getSpecies(species));
+        }
+    }
+
+    /**
+     * Record every following step to an exporter.
+     * @param exporter The exporter, null to stop recording
+     */
+    public void setExporter(StatsExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    /**
+     * Time every step and its phases from now on.
+     * @param metrics The metrics to count in, null to stop timing
+     */
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The field the simulation runs on.
+     */
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return The number of actors in the field.
+     */
+    public int getActorCount() {
+        return actorCount;
+    }
+
+    /**
+     * Throw away all actors and populate the field again.
+     */
+    public void reset(){
+        takeConfig();
+        // Roads drawn on the old run are gone with it.
+        pendingRoads.clear();
+        // Step 0 is the population, actors only act from step 1 on.
+        Randomizer.key(seed, 0, 0);
+        populator.populate(config);
+        restore(seed, 0, population);
+        population.clear();
+        if(metrics != null){
+            metrics.startRun(actorCount);
+        }
+    }
+
+    /**
+     * Add every actor to a list, strip by strip in the order they act.
+     * @param actors The list to add to
+     */
+    public void collectActors(List<Actor> actors){
+        for(List<Actor> strip : strips){
+            actors.addAll(strip);
+        }
+    }
+
+    /**
+     * Continue a run from a restored state. The field must already hold the actors.
+     * @param seed The seed of the run
+     * @param stepCount The number of steps the run had made
+     * @param actors The actors, in the order collectActors gave them
+     */
+    public void restore(long seed, long stepCount, List<Actor> actors){
+        this.seed = seed;
+        this.stepCount = stepCount;
+        endWave();
+        for(List<Actor> strip : strips){
+            strip.clear();
+        }
+        hunters.clear();
+        for(Actor actor : actors){
+            strips.get(stripOf(actor)).add(actor);
+            if(actor instanceof Hunter){
+                hunters.add((Hunter) actor);
+            }
+        }
+        actorCount = actors.size();
+    }
+
+    /**
+     * Find the strip an actor is in.
+     * @param actor The actor
+     * @return The index of the strip that holds the row of the actor, 0 if it has no location
+     */
+    private int stripOf(Actor actor){
+        Location location = actor.getLocation();
+        return location == null ? 0 : location.getRow() / STRIP_HEIGHT;
+    }
+
+    /**
+     * Determine whether the simulation should continue to run.
+     * @return true If there is more than one species alive.
+     */
+    public boolean isViable(){
+        return stats.isViable(field);
+    }
+
+    /**
+     * Stop the threads of the engine. The engine can't step on several threads afterwards.
+     */
+    public void shutdown(){
+        if(pool != null){
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Run one step of the simulation: let every actor act once and add the newborns.
+     * The step and its phases are flight recorder events, see StepEvent.
+     */
+    public void step(){
+        takeConfig();
+        placeRoads();
+        stepCount++;
+        StepEvent stepEvent = new StepEvent();
+        stepEvent.begin();
+        long start = System.nanoTime();
+        int actorsBefore = actorCount;
+        long markingsBefore = field.getMarkings();
+        for(int species = 0; species < Species.COUNT; species++){
+            countsBefore[species] = field.getCount(species);
+        }
+
+        // Age all animals at once, species by species, before anyone acts.
+        PhaseEvent phase = PhaseEvent.start(stepCount, PhaseEvent.AGE);
+        field.getStore(Species.RABBIT).growOlder();
+        field.getStore(Species.FOX).growOlder();
+        field.getStore(Species.BEAR).growOlder();
+        phase.commit();
+        long aged = System.nanoTime();
+        // All hunters shoot at once, then the survivors act.
+        phase = PhaseEvent.start(stepCount, PhaseEvent.SHOOT);
+        killZone.shoot(field, hunters);
+        phase.commit();
+        long shot = System.nanoTime();
+
+        // Let all actors act, even strips first.
+        phase = PhaseEvent.start(stepCount, PhaseEvent.ACT);
+        if(pool == null){
+            for(int strip = 0; strip < strips.size(); strip += 2){
+                actStrip(strip);
+            }
+            for(int strip = 1; strip < strips.size(); strip += 2){
+                actStrip(strip);
+            }
+        }
+        else {
+            field.beginParallelUpdate();
+            try {
+                pool.invoke(new PhaseTask(0, 0, (strips.size() + 1) / 2));
+                pool.invoke(new PhaseTask(1, 0, strips.size() / 2));
+            } finally {
+                field.endParallelUpdate();
+            }
+        }
+
+        phase.commit();
+        long acted = System.nanoTime();
+
+        // Compact every strip in place, then add the actors that moved and the newly born animals.
+        phase = PhaseEvent.start(stepCount, PhaseEvent.MERGE);
+        actorCount = 0;
+        for(int strip = 0; strip < strips.size(); strip++){
+            actorCount += compactStrip(strip);
+        }
+        for(Actor actor : movers){
+            strips.get(stripOf(actor)).add(actor);
+        }
+        actorCount += movers.size();
+        movers.clear();
+        int births = 0;
+        for(List<Animal> born : newborns){
+            births += born.size();
+            for(Animal animal : born){
+                // A newborn may already have been eaten later in the same step.
+                if(animal.isAlive()){
+                    strips.get(stripOf(animal)).add(animal);
+                    actorCount++;
+                }
+                else {
+                    animal.release();
+                }
+            }
+            born.clear();
+        }
+        phase.commit();
+        long end = System.nanoTime();
+
+        // Every actor that was there or was born, and isn't there anymore, died.
+        int deaths = actorsBefore + births - actorCount;
+        long infections = field.getMarkings() - markingsBefore;
+        if(exporter != null){
+            exporter.add(new StepRecord(stepCount, field, births, deaths, infections, end - start));
+        }
+        if(metrics != null){
+            metrics.record(EngineMetrics.AGE, aged - start);
+            metrics.record(EngineMetrics.SHOOT, shot - aged);
+            metrics.record(EngineMetrics.ACT, acted - shot);
+            metrics.record(EngineMetrics.MERGE, end - acted);
+            metrics.stepDone(actorCount, births, deaths, end - start);
+        }
+        watchPopulation(infections);
+        stepEvent.end();
+        if(stepEvent.shouldCommit()){
+            stepEvent.set(stepCount, field, births, deaths, infections);
+            stepEvent.commit();
+        }
+    }
+
+    /**
+     * Record die-offs and waves of myxomatosis as flight recorder events.
+     * @param infections The number of rabbits infected during the step
+     */
+    private void watchPopulation(long infections){
+        for(int species = 0; species < Species.COUNT; species++){
+            long count = field.getCount(species);
+            if(Species.isAnimal(species) && DieOffEvent.isDieOff(countsBefore[species], count)){
+                DieOffEvent.emit(stepCount, species, countsBefore[species], count);
+            }
+        }
+        if(infections > 0){
+            if(wave == null){
+                wave = InfectionWaveEvent.start(stepCount, countsBefore[Species.RABBIT]);
+            }
+            wave.add(stepCount, infections);
+        }
+        else {
+            endWave();
+        }
+    }
+
+    /**
+     * End the current wave of myxomatosis, if there is one.
+     */
+    private void endWave(){
+        if(wave != null){
+            wave.finish();
+            wave = null;
+        }
+    }
+
+    /**
+     * Remove the dead actors from a strip in a single pass, keeping the order of the others.
+     * Dead animals give their slot back to the store here, when nothing refers to them anymore.
+     * Actors that are alive but now belong to another strip are put aside in movers.
+     * @param strip The index of the strip.
+     * @return The number of actors that stay in the strip.
+     */
+    private int compactStrip(int strip){
+        List<Actor> actors = strips.get(strip);
+        int size = actors.size();
+        int kept = 0;
+        for(int i = 0; i < size; i++){
+            Actor actor = actors.get(i);
+            if(actor.isAlive()){
+                if(stripOf(actor) == strip){
+                    actors.set(kept++, actor);
+                }
+                else {
+                    movers.add(actor);
+                }
+            }
+            else if(actor instanceof Animal){
+                ((Animal) actor).release();
+            }
+        }
+        // Only the tail that is no longer used is cleared.
+        actors.subList(kept, size).clear();
+        return kept;
+    }
+
+    /**
+     * Let every actor of one strip act.
+     * @param strip The index of the strip.
+     */
+    private void actStrip(int strip){
+        List<Animal> born = newborns.get(strip);
+        for(Actor actor : strips.get(strip)){
+            Randomizer.key(seed, stepCount, actor.getId());
+            actor.act(born);
+        }
+    }
+
+    /**
+     * Lets the strips of one phase act, splitting the work in halves for the pool.
+     */
+    private class PhaseTask extends RecursiveAction {
+        // 0 for the even strips, 1 for the odd strips.
+        private final int parity;
+        // The range of strips of this phase to act on: strip parity + 2 * n for first <= n < last.
+        private final int first, last;
+
+        /**
+         * Create a task for a range of strips of one phase
+         * @param parity 0 for the even strips, 1 for the odd strips
+         * @param first The first strip of the phase in the range
+         * @param last One past the last strip of the phase in the range
+         */
+        public PhaseTask(int parity, int first, int last){
+            this.parity = parity;
+            this.first = first;
+            this.last = last;
+        }
+
+        /**
+         * Act on a single strip, or split the range in two
+         */
+        protected void compute(){
+            if(last - first == 1){
+                actStrip(parity + 2 * first);
+            }
+            else if(last - first > 1){
+                int middle = (first + last) / 2;
+                invokeAll(new PhaseTask(parity, first, middle), new PhaseTask(parity, middle, last));
+            }
+        }
+    }
+}
@@ -1,4 +1,5 @@
 import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.*;
 
@@ -7,10 +8,14 @@ import javax.swing.*;
  * the simulated forrest, control panels and statistic views.
  */
 public class SimulationView extends JFrame {
+    // The maximum number of times per second the field is painted
+    private static final int FRAME_RATE = 25;
 
     private FieldView fieldView;
     // A statistics object computing and storing simulation information
     private FieldStats stats;
+    // Snapshots of the field, written by the simulation and painted by the view
+    private SnapshotBuffer snapshots;
 
     /**
      * Create a view of the given width and height.
@@ -23,7 +28,7 @@ public class SimulationView extends JFrame {
     {
         super("Fox and Rabbit Simulation");
 
-        stats = new FieldStats();
+        stats = new FieldStats(field);
 
         HistoView barThingy = new HistoView("Field Statistics", stats, field);
         barThingy.pack();
@@ -31,10 +36,12 @@ public class SimulationView extends JFrame {
         lineThingy.pack();        
 	
 	    fieldView = new FieldView(height, width);
-        ControlView controlButtons = new ControlView(stats, simulationControl);
-        simulation.addObserver(controlButtons);
-        simulation.addObserver(lineThingy);
-        simulation.addObserver(barThingy);
+        new FieldControl(fieldView, simulationControl);
+        snapshots = new SnapshotBuffer(height, width);
+        ControlView controlButtons = new ControlView(simulationControl);
+        simulation.addStepListener(controlButtons);
+        simulation.addStepListener(lineThingy);
+        simulation.addStepListener(barThingy);
 
         // Start of building the GUI layout
         Container contents = getContentPane();  //Main screen
@@ -79,6 +86,13 @@ public class SimulationView extends JFrame {
 
         setVisible(true);
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+
+        //Paint the newest snapshot on the event dispatch thread, at a capped frame rate
+        Timer renderTimer = new Timer(1000 / FRAME_RATE, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                render();
+            }});
+        renderTimer.start();
     }
 
     /**
@@ -131,20 +145,31 @@ public class SimulationView extends JFrame {
         setJMenuBar(menuBar);
     }
 
-/**
-     * Show the current status of the field.
+    /**
+     * Show the current status of the field. Only a snapshot of the field is taken here,
+     * it is painted later on the event dispatch thread. Must always be called from the same thread.
      * @param field The field whose status is to be displayed.
+     * @param step The step the field is at.
      */
-    public void showStatus(Field field){
-        if(!isVisible()) {
-            setVisible(true);
-        }
+    public void showStatus(Field field, int step){
+        snapshots.publish(field, step);
+    }
 
+    /**
+     * Paint the newest snapshot of the field. Snapshots that were published in between
+     * two frames are never painted. Nothing is painted if there is no new snapshot and
+     * the field was not resized.
+     */
+    private void render(){
+        if(snapshots.takeNewest() == null && !fieldView.isResized()) {
+            return;
+        }
+        FieldSnapshot snapshot = snapshots.getCurrent();
+        PhaseEvent phase = PhaseEvent.start(snapshot.getStep(), PhaseEvent.RENDER);
         fieldView.preparePaint();
-        fieldView.drawMarks(field, stats);
-
-        repaint();
+        fieldView.drawMarks(snapshot);
         fieldView.repaint();
+        phase.commit();
     }
 
     /**
@@ -0,0 +1,61 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A triple buffer of field snapshots between the simulation and the view.
+ * The simulation writes into its own back buffer and swaps it with the middle
+ * one, the view swaps its front buffer with the middle one when that holds a
+ * newer snapshot. Neither side ever waits for the other, and snapshots the view
+ * had no time to paint are simply overwritten.
+ */
+public class SnapshotBuffer {
+    // The snapshot the simulation writes into, only used by the writing thread.
+    private FieldSnapshot back;
+    // The newest complete snapshot, or the one the view handed back.
+    private final AtomicReference<FieldSnapshot> middle;
+    // The snapshot the view paints, only used by the painting thread.
+    private FieldSnapshot front;
+    // The number of snapshots published so far.
+    private long published;
+
+    /**
+     * Create a buffer for snapshots of a field of the given dimensions.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public SnapshotBuffer(int depth, int width){
+        back = new FieldSnapshot(depth, width);
+        middle = new AtomicReference<FieldSnapshot>(new FieldSnapshot(depth, width));
+        front = new FieldSnapshot(depth, width);
+    }
+
+    /**
+     * Take a snapshot of the field and make it available to the view.
+     * Must always be called from the same thread.
+     * @param field The field to take a snapshot of.
+     * @param step The step the field is at.
+     */
+    public void publish(Field field, int step){
+        back.capture(field, step, ++published);
+        back = middle.getAndSet(back);
+    }
+
+    /**
+     * Take the newest snapshot, if one was published since the last call.
+     * Must always be called from the same thread.
+     * @return The newest snapshot, or null if there is nothing new.
+     */
+    public FieldSnapshot takeNewest(){
+        if(middle.get().getSequence() > front.getSequence()) {
+            front = middle.getAndSet(front);
+            return front;
+        }
+        return null;
+    }
+
+    /**
+     * @return The snapshot that was taken last by the view.
+     */
+    public FieldSnapshot getCurrent(){
+        return front;
+    }
+}
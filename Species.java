@@ -0,0 +1,83 @@
+import java.awt.Color;
+
+/**
+ * Compact codes for every kind of sprite that can occupy a position in the field.
+ * The field keeps these codes in a primitive grid, so that code scanning the whole
+ * field does not have to touch the sprite objects themselves.
+ */
+public class Species {
+    // Code of a position that holds no sprite at all.
+    public static final int EMPTY = 0;
+    public static final int RABBIT = 1;
+    public static final int FOX = 2;
+    public static final int BEAR = 3;
+    public static final int HUNTER = 4;
+    public static final int ROAD = 5;
+    // The number of codes, EMPTY included.
+    public static final int COUNT = 6;
+
+    // The name of every species, indexed by code.
+    private static final String[] NAMES = {"Empty", "Rabbit", "Fox", "Bear", "Hunter", "Road"};
+    // The color a species is drawn in, indexed by code.
+    private static final Color[] COLORS = {Color.white, Color.orange, Color.blue, Color.red, Color.green, Color.darkGray};
+    // Whether a species is an animal, indexed by code.
+    private static final boolean[] ANIMAL = {false, true, true, true, false, false};
+    // Whether a hunter shoots a species, indexed by code. Bears are too big to be shot.
+    private static final boolean[] SHOOTABLE = {false, true, true, false, false, false};
+
+    /**
+     * Species only holds constants, it can't be instantiated.
+     */
+    private Species(){
+    }
+
+    /**
+     * Get the name of a species, e.g. "Fox".
+     * @param species The species code
+     * @return The name of the species
+     */
+    public static String getName(int species){
+        return NAMES[species];
+    }
+
+    /**
+     * Find the code that belongs to a species name.
+     * @param name The name of the species, e.g. "Fox"
+     * @return The species code, EMPTY if no species has that name
+     */
+    public static int forName(String name){
+        for(int species = 0; species < COUNT; species++){
+            if(NAMES[species].equals(name)){
+                return species;
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Get the color a species is drawn in.
+     * @param species The species code
+     * @return The color of the species, white for EMPTY
+     */
+    public static Color getColor(int species){
+        return COLORS[species];
+    }
+
+    /**
+     * Check if a species is an animal, these are the species that keep a simulation viable.
+     * @param species The species code
+     * @return True if the species is an animal
+     */
+    public static boolean isAnimal(int species){
+        return ANIMAL[species];
+    }
+
+    /**
+     * Check if a hunter shoots a species.
+     * @param species The species code
+     * @return True if hunters shoot the species
+     */
+    public static boolean isShootable(int species){
+        return SHOOTABLE[species];
+    }
+}
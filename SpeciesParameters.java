@@ -0,0 +1,108 @@
+/**
+ * The parameters of one species for one run: how old its animals get, when and how
+ * often they breed and what they gain from eating. A SpeciesParameters never changes,
+ * a new one is made to change a parameter. Animals read the parameters of their
+ * species from their AnimalStore.
+ */
+public class SpeciesParameters {
+    // The parameters of a species that doesn't age, breed or eat, e.g. hunters.
+    public static final SpeciesParameters NONE = new SpeciesParameters(0, 0, 0, 0, 0, new int[Species.COUNT]);
+
+    // The age at which an animal can start to breed.
+    private final int breedingAge;
+    // The age to which an animal can live.
+    private final int maxAge;
+    // The likelihood of an animal breeding.
+    private final double breedingProbability;
+    // The maximum number of births.
+    private final int maxLitterSize;
+    // The percentage of new borns that carry the myxomatosis gene, only rabbits get the disease.
+    private final int genePercentage;
+    // The food value of every species, indexed by species code. In effect, this is the
+    // number of steps an animal can go before it has to eat again. Zero if it isn't eaten.
+    private final int[] foodValues;
+    // True if the food level of the species drops every step, i.e. it eats anything.
+    private final boolean hungry;
+
+    /**
+     * Create the parameters of a species.
+     * @param breedingAge The age at which an animal can start to breed
+     * @param maxAge The age to which an animal can live
+     * @param breedingProbability The likelihood of an animal breeding
+     * @param maxLitterSize The maximum number of births
+     * @param genePercentage The percentage of new borns that carry the myxomatosis gene
+     * @param foodValues The food value of every species, indexed by species code, the array is copied
+     */
+    public SpeciesParameters(int breedingAge, int maxAge, double breedingProbability, int maxLitterSize,
+                             int genePercentage, int[] foodValues){
+        this.breedingAge = breedingAge;
+        this.maxAge = maxAge;
+        this.breedingProbability = breedingProbability;
+        this.maxLitterSize = maxLitterSize;
+        this.genePercentage = genePercentage;
+        this.foodValues = foodValues.clone();
+        boolean eats = false;
+        for(int value : foodValues){
+            eats |= value > 0;
+        }
+        hungry = eats;
+    }
+
+    /**
+     * @return The age at which an animal can start to breed.
+     */
+    public int getBreedingAge(){
+        return breedingAge;
+    }
+
+    /**
+     * @return The age to which an animal can live.
+     */
+    public int getMaxAge(){
+        return maxAge;
+    }
+
+    /**
+     * @return The likelihood of an animal breeding.
+     */
+    public double getBreedingProbability(){
+        return breedingProbability;
+    }
+
+    /**
+     * @return The maximum number of births.
+     */
+    public int getMaxLitterSize(){
+        return maxLitterSize;
+    }
+
+    /**
+     * @return The percentage of new borns that carry the myxomatosis gene.
+     */
+    public int getGenePercentage(){
+        return genePercentage;
+    }
+
+    /**
+     * Get what an animal of this species gains from eating another sprite.
+     * @param prey The species code of the sprite
+     * @return The food value, zero if this species doesn't eat it
+     */
+    public int getFoodValue(int prey){
+        return foodValues[prey];
+    }
+
+    /**
+     * @return A copy of the food values, indexed by species code.
+     */
+    public int[] getFoodValues(){
+        return foodValues.clone();
+    }
+
+    /**
+     * @return True if the food level of the species drops every step.
+     */
+    public boolean isHungry(){
+        return hungry;
+    }
+}
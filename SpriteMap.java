@@ -0,0 +1,162 @@
+import java.util.Arrays;
+
+/**
+ * A map from packed positions, row * width + col, to the sprites on them. Keys are
+ * kept in a long array with open addressing and linear probing, so looking up,
+ * adding and removing a sprite doesn't box the position or allocate an entry;
+ * only growing the table allocates. A removed entry is filled by shifting the
+ * entries after it back, so the table holds no tombstones.
+ */
+public class SpriteMap {
+    // The key of an unused entry, positions are never negative.
+    private static final long FREE = -1;
+    // The table is grown when it would be fuller than this, as a fraction of its capacity.
+    private static final double MAX_LOAD = 0.5;
+
+    // The position of every entry, FREE where the entry is unused.
+    private long[] keys;
+    // The sprite of every entry, null where the entry is unused.
+    private FieldSprite[] values;
+    // The number of entries in use.
+    private int size;
+
+    /**
+     * Create an empty map.
+     */
+    public SpriteMap(){
+        keys = new long[16];
+        values = new FieldSprite[16];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * @param position The position, row * width + col
+     * @return The sprite on the position, null if there is none
+     */
+    public FieldSprite get(long position){
+        int mask = keys.length - 1;
+        for(int i = home(position, mask); keys[i] != FREE; i = (i + 1) & mask) {
+            if(keys[i] == position) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Put a sprite on a position, replacing the sprite that was there.
+     * @param position The position, row * width + col
+     * @param sprite The sprite, not null
+     */
+    public void put(long position, FieldSprite sprite){
+        int mask = keys.length - 1;
+        int i = home(position, mask);
+        while(keys[i] != FREE) {
+            if(keys[i] == position) {
+                values[i] = sprite;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = position;
+        values[i] = sprite;
+        size++;
+        if(size > keys.length * MAX_LOAD) {
+            grow();
+        }
+    }
+
+    /**
+     * Take the sprite off a position, if there is one.
+     * @param position The position, row * width + col
+     */
+    public void remove(long position){
+        int mask = keys.length - 1;
+        int i = home(position, mask);
+        while(keys[i] != position) {
+            if(keys[i] == FREE) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        // Move every later entry of the run that may live at i back, until the run ends.
+        for(int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int k = home(keys[j], mask);
+            // The entry at j can only move to i if its home is not between i and j.
+            boolean between = i <= j ? i < k && k <= j : i < k || k <= j;
+            if(!between) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = FREE;
+        values[i] = null;
+        size--;
+    }
+
+    /**
+     * Take every sprite off.
+     */
+    public void clear(){
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * @return The number of positions with a sprite.
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @return The number of entries of the table, to walk it with getKey.
+     */
+    public int capacity(){
+        return keys.length;
+    }
+
+    /**
+     * @param entry An entry of the table, below capacity()
+     * @return The position of the entry, or a negative number if the entry is unused
+     */
+    public long getKey(int entry){
+        return keys[entry];
+    }
+
+    /**
+     * Double the table and put every entry in again.
+     */
+    private void grow(){
+        long[] oldKeys = keys;
+        FieldSprite[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new FieldSprite[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+        int mask = keys.length - 1;
+        for(int entry = 0; entry < oldKeys.length; entry++) {
+            if(oldKeys[entry] != FREE) {
+                int i = home(oldKeys[entry], mask);
+                while(keys[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[entry];
+                values[i] = oldValues[entry];
+            }
+        }
+    }
+
+    /**
+     * Spread the positions over the table; neighbouring positions would otherwise
+     * form long runs.
+     * @param position The position
+     * @param mask The capacity of the table minus one
+     * @return The entry at which the search for the position starts
+     */
+    private static int home(long position, int mask){
+        long hash = position * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
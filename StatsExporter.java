@@ -0,0 +1,251 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes step records to a file on a background thread. The engine only offers
+ * a record to a bounded queue, so a step never waits for the disk. The writer
+ * thread takes what is in the queue in batches and flushes at least every
+ * FLUSH_INTERVAL milliseconds. When the disk can't keep up and the queue is full,
+ * records are dropped and counted instead of piling up in memory. When the writer
+ * fails, adding a record throws, so the run doesn't go on without its statistics.
+ *
+ * Records are written either as comma separated values, one line per step, or
+ * in a compact columnar binary layout: the int MAGIC, the int VERSION and the
+ * int number of species codes, followed by blocks. A block is the int number of
+ * records n, then n longs for the step, n longs per species code except EMPTY,
+ * n ints for the births, n ints for the deaths, n longs for the infections and
+ * n longs for the durations in nanoseconds. All numbers are big endian.
+ */
+public class StatsExporter implements Runnable {
+    // The first int of a columnar file, "FXST".
+    public static final int MAGIC = 0x46585354;
+    // The version of the columnar layout.
+    public static final int VERSION = 1;
+    // The longest time records wait in memory before they are flushed, in milliseconds.
+    public static final long FLUSH_INTERVAL = 1000;
+    // The largest number of records waiting to be written.
+    public static final int CAPACITY = 1 << 16;
+    // The largest number of records written as one batch.
+    private static final int MAX_BATCH = 4096;
+    // How long the writer sleeps when the queue is empty, in nanoseconds.
+    private static final long IDLE_PARK = 10000000L;
+
+    // The records that were added and not yet written.
+    private final ArrayBlockingQueue<StepRecord> queue;
+    // The file that is written, and its channel.
+    private final RandomAccessFile access;
+    private final FileChannel channel;
+    // True to write columnar binary, false for comma separated values.
+    private final boolean columnar;
+    // The buffer data goes through on its way to the channel.
+    private ByteBuffer buffer;
+    // The writer thread.
+    private final Thread writer;
+    // Set when no more records will be added.
+    private volatile boolean closed;
+    // The first error the writer ran into, reported by add and close.
+    private volatile IOException failure;
+    // The number of records dropped because the queue was full. Only the adding thread changes it.
+    private volatile long dropped;
+
+    /**
+     * Start exporting to a file. An existing file is overwritten.
+     * @param file The file to write
+     * @param columnar True for the columnar binary layout, false for comma separated values
+     * @throws IOException If the file can't be created
+     */
+    public StatsExporter(File file, boolean columnar) throws IOException {
+        this.columnar = columnar;
+        queue = new ArrayBlockingQueue<StepRecord>(CAPACITY);
+        access = new RandomAccessFile(file, "rw");
+        access.setLength(0);
+        channel = access.getChannel();
+        buffer = ByteBuffer.allocateDirect(1 << 16);
+        if(columnar){
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(Species.COUNT);
+        }
+        else {
+            StringBuilder line = new StringBuilder("step");
+            for(int species = Species.EMPTY + 1; species < Species.COUNT; species++){
+                line.append(',').append(Species.getName(species));
+            }
+            line.append(",births,deaths,infections,nanos\n");
+            put(line);
+        }
+        writer = new Thread(this, "stats-exporter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Hand a record to the writer. Never blocks; when CAPACITY records are already
+     * waiting the record is dropped and counted. Only one thread may call this.
+     * @param record The record of a step that ended
+     * @return True if the record was queued, false if it was dropped
+     * @throws IllegalStateException If the writer failed, no more records are accepted
+     */
+    public boolean add(StepRecord record){
+        IOException error = failure;
+        if(error != null){
+            throw new IllegalStateException("Writing the statistics failed", error);
+        }
+        if(queue.offer(record)){
+            return true;
+        }
+        dropped++;
+        return false;
+    }
+
+    /**
+     * @return The number of records dropped because the writer couldn't keep up.
+     */
+    public long getDropped(){
+        return dropped;
+    }
+
+    /**
+     * Write everything that is still queued, and close the file.
+     * @throws IOException If writing failed at any time
+     */
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        access.close();
+        if(failure != null){
+            throw failure;
+        }
+    }
+
+    /**
+     * The loop of the writer thread: take batches off the queue until closed and empty.
+     */
+    public void run(){
+        List<StepRecord> batch = new ArrayList<StepRecord>(MAX_BATCH);
+        long lastFlush = System.currentTimeMillis();
+        try {
+            while(true){
+                boolean done = closed;
+                StepRecord record;
+                while(batch.size() < MAX_BATCH && (record = queue.poll()) != null){
+                    batch.add(record);
+                }
+                if(!batch.isEmpty()){
+                    write(batch);
+                    batch.clear();
+                }
+                long now = System.currentTimeMillis();
+                if(done || now - lastFlush >= FLUSH_INTERVAL){
+                    flush();
+                    lastFlush = now;
+                }
+                // The queue was seen empty after closing, so nothing can follow.
+                if(done && queue.isEmpty()){
+                    channel.force(false);
+                    return;
+                }
+                if(queue.isEmpty()){
+                    LockSupport.parkNanos(this, IDLE_PARK);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Put a batch of records into the buffer, in the chosen layout.
+     * @param batch The records
+     * @throws IOException If a full buffer can't be flushed
+     */
+    private void write(List<StepRecord> batch) throws IOException {
+        if(!columnar){
+            StringBuilder line = new StringBuilder();
+            for(StepRecord record : batch){
+                line.setLength(0);
+                line.append(record.getStep());
+                for(int species = Species.EMPTY + 1; species < Species.COUNT; species++){
+                    line.append(',').append(record.getCount(species));
+                }
+                line.append(',').append(record.getBirths()).append(',').append(record.getDeaths())
+                        .append(',').append(record.getInfections()).append(',').append(record.getDuration())
+                        .append('\n');
+                put(line);
+            }
+            return;
+        }
+        int n = batch.size();
+        // A step long, a long per species, two ints, two longs.
+        ensure(4 + n * (8 * (Species.COUNT - 1) + 8 + 4 + 4 + 8 + 8));
+        buffer.putInt(n);
+        for(StepRecord record : batch){
+            buffer.putLong(record.getStep());
+        }
+        for(int species = Species.EMPTY + 1; species < Species.COUNT; species++){
+            for(StepRecord record : batch){
+                buffer.putLong(record.getCount(species));
+            }
+        }
+        for(StepRecord record : batch){
+            buffer.putInt(record.getBirths());
+        }
+        for(StepRecord record : batch){
+            buffer.putInt(record.getDeaths());
+        }
+        for(StepRecord record : batch){
+            buffer.putLong(record.getInfections());
+        }
+        for(StepRecord record : batch){
+            buffer.putLong(record.getDuration());
+        }
+    }
+
+    /**
+     * Put a line of text into the buffer.
+     * @param text The text
+     * @throws IOException If a full buffer can't be flushed
+     */
+    private void put(CharSequence text) throws IOException {
+        byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Make room in the buffer for the given number of bytes, flushing or growing it.
+     * @param bytes The number of bytes needed
+     * @throws IOException If the buffer can't be flushed
+     */
+    private void ensure(int bytes) throws IOException {
+        if(buffer.remaining() < bytes){
+            flush();
+            if(buffer.capacity() < bytes){
+                buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes) << 1);
+            }
+        }
+    }
+
+    /**
+     * Write the buffer to the file.
+     * @throws IOException If writing fails
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
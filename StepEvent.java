@@ -0,0 +1,61 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for every step of a simulation engine, with the population
+ * at the end of the step. Its duration is the time the step took, so GC pauses and
+ * hot methods in a recording can be lined up with what the simulation was doing.
+ */
+@Name("foxesandrabbits.Step")
+@Label("Simulation Step")
+@Category("Foxes and Rabbits")
+@StackTrace(false)
+@Description("One step of a simulation engine")
+public class StepEvent extends jdk.jfr.Event {
+    @Label("Step")
+    long step;
+
+    @Label("Rabbits")
+    long rabbits;
+
+    @Label("Foxes")
+    long foxes;
+
+    @Label("Bears")
+    long bears;
+
+    @Label("Hunters")
+    long hunters;
+
+    @Label("Births")
+    int births;
+
+    @Label("Deaths")
+    int deaths;
+
+    @Label("Infections")
+    @Description("Rabbits infected with myxomatosis during the step")
+    long infections;
+
+    /**
+     * Fill in the figures of a step that just ended.
+     * @param step The number of the step
+     * @param field The field, to count the population of
+     * @param births The number of animals born during the step
+     * @param deaths The number of actors that died during the step
+     * @param infections The number of rabbits infected during the step
+     */
+    public void set(long step, Field field, int births, int deaths, long infections){
+        this.step = step;
+        rabbits = field.getCount(Species.RABBIT);
+        foxes = field.getCount(Species.FOX);
+        bears = field.getCount(Species.BEAR);
+        hunters = field.getCount(Species.HUNTER);
+        this.births = births;
+        this.deaths = deaths;
+        this.infections = infections;
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * Interface for everything that wants to follow the progress of a simulation.
+ * Listeners are called at most once per step, with the state at the end of that step.
+ */
+public interface StepListener {
+
+    /**
+     * Called when the simulation has published a new state.
+     * @param snapshot The state of the simulation at the end of the step
+     */
+    public abstract void stepCompleted(StepSnapshot snapshot);
+}
@@ -0,0 +1,79 @@
+/**
+ * The statistics of one step of a simulation engine: the population of every
+ * species at the end of the step, how many animals were born and died, how many
+ * rabbits got infected, and how long the step took.
+ */
+public class StepRecord {
+    private final long step;
+    // The population of every species, indexed by species code.
+    private final long[] counts;
+    private final int births;
+    private final int deaths;
+    private final long infections;
+    // The time the step took, in nanoseconds.
+    private final long duration;
+
+    /**
+     * Record the statistics of a step that just ended.
+     * @param step The number of the step
+     * @param field The field, to count the population of
+     * @param births The number of animals born during the step
+     * @param deaths The number of actors that died during the step
+     * @param infections The number of rabbits infected during the step
+     * @param duration The time the step took, in nanoseconds
+     */
+    public StepRecord(long step, Field field, int births, int deaths, long infections, long duration){
+        this.step = step;
+        counts = new long[Species.COUNT];
+        for(int species = 0; species < Species.COUNT; species++){
+            counts[species] = field.getCount(species);
+        }
+        this.births = births;
+        this.deaths = deaths;
+        this.infections = infections;
+        this.duration = duration;
+    }
+
+    /**
+     * @return The number of the step.
+     */
+    public long getStep(){
+        return step;
+    }
+
+    /**
+     * @param species The species code
+     * @return The population of the species at the end of the step
+     */
+    public long getCount(int species){
+        return counts[species];
+    }
+
+    /**
+     * @return The number of animals born during the step.
+     */
+    public int getBirths(){
+        return births;
+    }
+
+    /**
+     * @return The number of actors that died during the step.
+     */
+    public int getDeaths(){
+        return deaths;
+    }
+
+    /**
+     * @return The number of rabbits infected during the step.
+     */
+    public long getInfections(){
+        return infections;
+    }
+
+    /**
+     * @return The time the step took, in nanoseconds.
+     */
+    public long getDuration(){
+        return duration;
+    }
+}
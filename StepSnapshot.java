@@ -0,0 +1,71 @@
+/**
+ * An immutable record of the state of a simulation at the end of a step.
+ * It is published once per step, so listeners never see a state that is
+ * halfway through being updated.
+ */
+public class StepSnapshot {
+    private final int step;
+    private final int numSteps;
+    private final boolean paused;
+    // The population of every species, indexed by species code.
+    private final long[] counts;
+
+    /**
+     * Record the current state of a simulation and its field.
+     * @param simulation The simulation holding the step counters
+     * @param field The field holding the population counts
+     */
+    public StepSnapshot(Simulation simulation, Field field){
+        step = simulation.getStep();
+        numSteps = simulation.getNumSteps();
+        paused = simulation.isPaused();
+        counts = new long[Species.COUNT];
+        for(int species = 0; species < Species.COUNT; species++){
+            counts[species] = field.getCount(species);
+        }
+    }
+
+    /**
+     * Record a state that was not taken from a running simulation, e.g. a frame of a replay.
+     * @param step The step
+     * @param numSteps The planned number of steps
+     * @param paused True if the simulation is paused
+     * @param counts The population of every species, indexed by species code
+     */
+    public StepSnapshot(int step, int numSteps, boolean paused, long[] counts){
+        this.step = step;
+        this.numSteps = numSteps;
+        this.paused = paused;
+        this.counts = counts.clone();
+    }
+
+    /**
+     * @return The step this snapshot was taken at.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * @return The planned number of steps at the time of the snapshot.
+     */
+    public int getNumSteps() {
+        return numSteps;
+    }
+
+    /**
+     * @return True if the simulation was paused at the time of the snapshot.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Get the population of one species.
+     * @param species The species code
+     * @return The number of sprites of that species at the time of the snapshot.
+     */
+    public long getCount(int species) {
+        return counts[species];
+    }
+}
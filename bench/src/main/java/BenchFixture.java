@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import benchmarks.Fixture;
+
+/**
+ * Gives the benchmarks in the package benchmarks access to the simulation, which
+ * lives in the default package. See benchmarks.Fixture.
+ */
+public class BenchFixture implements Fixture {
+    // The number of locations the location benchmarks go round.
+    private static final int LOCATIONS = 1024;
+
+    private SimulationEngine engine;
+    private Field field;
+    private FieldStats stats;
+    private long seed;
+    // A fixed set of locations spread over the field, and the next one to use.
+    private Location[] locations;
+    private int next;
+    // Counts the animals a walk passes, and the count of the current walk.
+    private NeighbourVisitor animalCounter;
+    private int animals;
+    // The buffer litters are found in, as large as the largest litter.
+    private Location[] litter;
+    // A populator of its own, with the list it adds to.
+    private Populator populator;
+    private List<Actor> actors;
+    // The view and the snapshot it draws.
+    private FieldView view;
+    private FieldSnapshot snapshot;
+
+    /**
+     * Create a field with an engine and populate it.
+     * @param depth The depth of the field
+     * @param width The width of the field
+     * @param rabbits Percentage of positions starting with a rabbit
+     * @param foxes Percentage of positions starting with a fox
+     * @param bears Percentage of positions starting with a bear
+     * @param seed The seed of the run
+     */
+    public void createField(int depth, int width, double rabbits, double foxes, double bears, long seed){
+        this.seed = seed;
+        engine = new SimulationEngine(depth, width);
+        engine.setConfig(SimulationConfig.DEFAULT.withPopulation(rabbits, foxes, bears, 1));
+        field = engine.getField();
+        stats = new FieldStats(field);
+        actors = new ArrayList<Actor>();
+        populator = new Populator(field, actors);
+        Random rand = new Random(seed);
+        animalCounter = new NeighbourVisitor() {
+            public boolean visit(int row, int col){
+                if(Species.isAnimal(field.getSpeciesAt(row, col))){
+                    animals++;
+                }
+                return false;
+            }
+        };
+        litter = new Location[Fox.MAX_LITTER_SIZE];
+        locations = new Location[LOCATIONS];
+        for(int i = 0; i < LOCATIONS; i++){
+            locations[i] = new Location(rand.nextInt(depth), rand.nextInt(width));
+        }
+        reset();
+    }
+
+    /**
+     * Populate the field again from the same seed, throwing the current population away.
+     */
+    public void reset(){
+        engine.setSeed(seed);
+        engine.reset();
+    }
+
+    /**
+     * Run one step of the engine.
+     * @return The number of actors after the step
+     */
+    public int step(){
+        engine.step();
+        return engine.getActorCount();
+    }
+
+    /**
+     * @return The next location of the fixed set.
+     */
+    private Location nextLocation(){
+        next = (next + 1) & (LOCATIONS - 1);
+        return locations[next];
+    }
+
+    /**
+     * Call Field.adjacentLocations for the next of a fixed set of locations.
+     * @param radius How far around the location to look
+     * @return The number of locations found
+     */
+    public int adjacentLocations(int radius){
+        return field.adjacentLocations(nextLocation(), radius).size();
+    }
+
+    /**
+     * Call Field.getFreeAdjacentLocations for the next of a fixed set of locations.
+     * @param radius How far around the location to look
+     * @return The number of free locations found
+     */
+    public int freeAdjacentLocations(int radius){
+        return field.getFreeAdjacentLocations(nextLocation(), radius).size();
+    }
+
+    /**
+     * Call Field.visitAdjacent for the next of a fixed set of locations, with a visitor
+     * that looks at the species of every position, like a fox looking for food.
+     * @param radius How far around the location to look
+     * @return The number of positions that held an animal
+     */
+    public int visitAdjacent(int radius){
+        Location location = nextLocation();
+        animals = 0;
+        field.visitAdjacent(location.getRow(), location.getCol(), radius, animalCounter);
+        return animals;
+    }
+
+    /**
+     * Call Field.freeAdjacentLocation for the next of a fixed set of locations, like an animal moving.
+     * @param radius How far around the location to look
+     * @return The location found, null if there was none
+     */
+    public Object freeAdjacentLocation(int radius){
+        return field.freeAdjacentLocation(nextLocation(), radius);
+    }
+
+    /**
+     * Call Field.freeAdjacentLocations with a reused buffer for the next of a fixed set
+     * of locations, like an animal giving birth to the largest litter.
+     * @param radius How far around the location to look
+     * @return The number of free locations found
+     */
+    public int freeAdjacentLocationsInto(int radius){
+        return field.freeAdjacentLocations(nextLocation(), radius, litter, litter.length);
+    }
+
+    /**
+     * Call Field.getFreeRandomLocation.
+     * @return The location
+     */
+    public Object freeRandomLocation(){
+        return field.getFreeRandomLocation();
+    }
+
+    /**
+     * Call Populator.populate on the field, from the same seed every time.
+     * The engine is not told, so it must be reset before it steps again.
+     * @return The number of actors created
+     */
+    public int populate(){
+        actors.clear();
+        Randomizer.key(seed, 0, 0);
+        populator.populate(engine.getConfig());
+        return actors.size();
+    }
+
+    /**
+     * Prepare a FieldView of the field for drawing into an offscreen image.
+     * @param markSize The size of a position in pixels
+     */
+    public void createView(int markSize){
+        view = new FieldView(field.getDepth(), field.getWidth());
+        view.setSize(field.getWidth() * markSize, field.getDepth() * markSize);
+        view.preparePaint();
+        snapshot = new FieldSnapshot(field.getDepth(), field.getWidth());
+        snapshot.capture(field, 0, 1);
+    }
+
+    /**
+     * Draw the field with FieldView.drawMarks into the offscreen image.
+     * @return The number of positions drawn
+     */
+    public int drawMarks(){
+        view.drawMarks(snapshot);
+        return snapshot.getDepth() * snapshot.getWidth();
+    }
+
+    /**
+     * Call FieldStats.isViable.
+     * @return True if the field is viable
+     */
+    public boolean isViable(){
+        return stats.isViable(field);
+    }
+}
@@ -0,0 +1,28 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks like the JMH main class does, with the same command line
+ * options, but always with the gc profiler, so every result comes with its
+ * allocation rate (gc.alloc.rate and gc.alloc.rate.norm).
+ */
+public class BenchmarkMain {
+
+    /**
+     * Run the benchmarks.
+     * @param args JMH command line options, e.g. a benchmark name and -p size=400
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The location queries of Field and FieldStats.isViable, on a populated field that
+ * doesn't change. The adjacency queries go round a fixed set of locations.
+ * visitAdjacent, freeAdjacentLocation and freeAdjacentLocations are the walks the
+ * animals use; the list building adjacentLocations and freeAdjacentLocations are
+ * only measured to compare with them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldBenchmark {
+    @Param({"1", "5"})
+    public int radius;
+
+    @Param({"200"})
+    public int size;
+
+    private Fixture fixture;
+
+    /**
+     * Populate a square field with the default densities.
+     */
+    @Setup
+    public void setUp(){
+        fixture = Fixtures.create();
+        fixture.createField(size, size, 8, 2, 0.05, 42);
+    }
+
+    @Benchmark
+    public int adjacentLocations(){
+        return fixture.adjacentLocations(radius);
+    }
+
+    @Benchmark
+    public int freeAdjacentLocations(){
+        return fixture.freeAdjacentLocations(radius);
+    }
+
+    @Benchmark
+    public int visitAdjacent(){
+        return fixture.visitAdjacent(radius);
+    }
+
+    @Benchmark
+    public Object freeAdjacentLocation(){
+        return fixture.freeAdjacentLocation(radius);
+    }
+
+    @Benchmark
+    public int freeAdjacentLocationsInto(){
+        return fixture.freeAdjacentLocationsInto(radius);
+    }
+
+    @Benchmark
+    public Object freeRandomLocation(){
+        return fixture.freeRandomLocation();
+    }
+
+    @Benchmark
+    public boolean isViable(){
+        return fixture.isViable();
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+/**
+ * What the benchmarks measure, implemented by BenchFixture in the default package
+ * next to the simulation. JMH doesn't accept benchmarks in the default package and a
+ * named package can't refer to the default one, so the benchmarks only see this
+ * interface. Every method does the work of one benchmark call and returns something
+ * that depends on it, so the JIT can't drop the work.
+ */
+public interface Fixture {
+
+    /**
+     * Create a field with an engine and populate it.
+     * @param depth The depth of the field
+     * @param width The width of the field
+     * @param rabbits Percentage of positions starting with a rabbit
+     * @param foxes Percentage of positions starting with a fox
+     * @param bears Percentage of positions starting with a bear
+     * @param seed The seed of the run
+     */
+    void createField(int depth, int width, double rabbits, double foxes, double bears, long seed);
+
+    /**
+     * Populate the field again from the same seed, throwing the current population away.
+     */
+    void reset();
+
+    /**
+     * Run one step of the engine.
+     * @return The number of actors after the step
+     */
+    int step();
+
+    /**
+     * Call Field.adjacentLocations for the next of a fixed set of locations.
+     * Only kept to compare with the walks that replaced it.
+     * @param radius How far around the location to look
+     * @return The number of locations found
+     */
+    int adjacentLocations(int radius);
+
+    /**
+     * Call Field.getFreeAdjacentLocations for the next of a fixed set of locations.
+     * Only kept to compare with the walks that replaced it.
+     * @param radius How far around the location to look
+     * @return The number of free locations found
+     */
+    int freeAdjacentLocations(int radius);
+
+    /**
+     * Call Field.visitAdjacent for the next of a fixed set of locations, with a visitor
+     * that looks at the species of every position, like a fox looking for food.
+     * @param radius How far around the location to look
+     * @return The number of positions that held an animal
+     */
+    int visitAdjacent(int radius);
+
+    /**
+     * Call Field.freeAdjacentLocation for the next of a fixed set of locations, like an animal moving.
+     * @param radius How far around the location to look
+     * @return The location found, null if there was none
+     */
+    Object freeAdjacentLocation(int radius);
+
+    /**
+     * Call Field.freeAdjacentLocations with a reused buffer for the next of a fixed set
+     * of locations, like an animal giving birth to the largest litter.
+     * @param radius How far around the location to look
+     * @return The number of free locations found
+     */
+    int freeAdjacentLocationsInto(int radius);
+
+    /**
+     * Call Field.getFreeRandomLocation.
+     * @return The location
+     */
+    Object freeRandomLocation();
+
+    /**
+     * Call Populator.populate on the field, from the same seed every time.
+     * @return The number of actors created
+     */
+    int populate();
+
+    /**
+     * Prepare a FieldView of the field for drawing into an offscreen image.
+     * @param markSize The size of a position in pixels
+     */
+    void createView(int markSize);
+
+    /**
+     * Draw the field with FieldView.drawMarks into the offscreen image.
+     * @return The number of positions drawn
+     */
+    int drawMarks();
+
+    /**
+     * Call FieldStats.isViable.
+     * @return True if the field is viable
+     */
+    boolean isViable();
+}
@@ -0,0 +1,27 @@
+package benchmarks;
+
+/**
+ * Creates the fixture, which lives in the default package and can only be reached by name.
+ */
+public final class Fixtures {
+    // The name of the class that implements Fixture.
+    private static final String FIXTURE_CLASS = "BenchFixture";
+
+    /**
+     * Fixtures only has static methods, it can't be instantiated.
+     */
+    private Fixtures(){
+    }
+
+    /**
+     * Create a new fixture.
+     * @return The fixture
+     */
+    public static Fixture create(){
+        try {
+            return (Fixture) Class.forName(FIXTURE_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create " + FIXTURE_CLASS, e);
+        }
+    }
+}
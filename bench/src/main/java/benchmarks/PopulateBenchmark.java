@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Populator.populate, which clears the field and fills it again from the same seed.
+ * After the first call all animals are revived from the stores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PopulateBenchmark {
+    @Param({"100", "400", "1000"})
+    public int size;
+
+    // Percentage of positions starting with a rabbit, a quarter of that with a fox.
+    @Param({"2", "8", "20"})
+    public double density;
+
+    private Fixture fixture;
+
+    @Setup
+    public void setUp(){
+        fixture = Fixtures.create();
+        fixture.createField(size, size, density, density / 4, 0.05, 42);
+    }
+
+    @Benchmark
+    public int populate(){
+        return fixture.populate();
+    }
+}
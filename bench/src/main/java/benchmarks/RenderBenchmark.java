@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FieldView.drawMarks of a snapshot of a populated field, into an offscreen image.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RenderBenchmark {
+    @Param({"100", "400"})
+    public int size;
+
+    // The size of a position in pixels.
+    @Param({"4", "8"})
+    public int markSize;
+
+    private Fixture fixture;
+
+    @Setup
+    public void setUp(){
+        fixture = Fixtures.create();
+        fixture.createField(size, size, 8, 2, 0.05, 42);
+        fixture.createView(markSize);
+    }
+
+    @Benchmark
+    public int drawMarks(){
+        return fixture.drawMarks();
+    }
+}
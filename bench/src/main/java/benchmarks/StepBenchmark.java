@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A full step of the engine, what the simulator thread of the GUI does every step.
+ * The population changes from step to step, so a step is only comparable to the same
+ * step of the same run. Every iteration therefore starts again from the same seed and
+ * times exactly STEPS steps in one shot: the first STEPS steps of the same run, never
+ * the dead or empty field a run can end in. The score is the time of those STEPS steps.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = StepBenchmark.STEPS)
+@Measurement(iterations = 20, batchSize = StepBenchmark.STEPS)
+@Fork(1)
+@State(Scope.Thread)
+public class StepBenchmark {
+    // The number of steps every iteration times, from the start of the run.
+    public static final int STEPS = 50;
+
+    @Param({"100", "400", "1000"})
+    public int size;
+
+    // Percentage of positions starting with a rabbit, a quarter of that with a fox.
+    @Param({"2", "8", "20"})
+    public double density;
+
+    private Fixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        fixture = Fixtures.create();
+        fixture.createField(size, size, density, density / 4, 0.05, 42);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset(){
+        fixture.reset();
+    }
+
+    @Benchmark
+    public int step(){
+        return fixture.step();
+    }
+}
@@ -0,0 +1,82 @@
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * The walks around a position must not prefer a direction: animals move to and give
+ * birth on the first free position of a walk, so any preference makes the whole
+ * population drift.
+ */
+public class FieldWalkTest {
+    // The number of walks counted per test.
+    private static final int WALKS = 400000;
+
+    /**
+     * Count which neighbour every walk around the middle of an empty field visits first.
+     * @param range How far around the position the walks reach
+     * @return The counts, indexed by (row offset + range) * (2 * range + 1) + column offset + range
+     */
+    private static long[] firstDirections(int range){
+        Field field = new Field(101, 101);
+        Randomizer.key(42, 1, range);
+        int side = 2 * range + 1;
+        long[] counts = new long[side * side];
+        NeighbourVisitor first = new NeighbourVisitor() {
+            public boolean visit(int row, int col){
+                return true;
+            }
+        };
+        for(int i = 0; i < WALKS; i++){
+            Location location = field.visitAdjacent(50, 50, range, first);
+            counts[(location.getRow() - 50 + range) * side + location.getCol() - 50 + range]++;
+        }
+        return counts;
+    }
+
+    /**
+     * @param counts The first directions, as counted by firstDirections
+     * @return The chi-squared statistic of the counts against a uniform distribution over the neighbours.
+     */
+    private static double chiSquared(long[] counts){
+        double expected = (double) WALKS / (counts.length - 1);
+        double chi = 0;
+        for(int i = 0; i < counts.length; i++){
+            if(i != counts.length / 2){
+                chi += (counts[i] - expected) * (counts[i] - expected) / expected;
+            }
+        }
+        return chi;
+    }
+
+    @Test
+    public void firstDirectionIsUniformAtRangeOne(){
+        // The 99.9% point of chi-squared with 7 degrees of freedom.
+        assertTrue(chiSquared(firstDirections(1)) < 24.3);
+    }
+
+    @Test
+    public void firstDirectionIsUniformAtRangeFive(){
+        // The 99.9% point of chi-squared with 119 degrees of freedom.
+        assertTrue(chiSquared(firstDirections(5)) < 166.0);
+    }
+
+    @Test
+    public void walkersDontDrift(){
+        Field field = new Field(2001, 2001);
+        Randomizer.key(42, 1, 0);
+        int walkers = 200;
+        long rows = 0, cols = 0;
+        for(int walker = 0; walker < walkers; walker++){
+            Location location = new Location(1000, 1000);
+            for(int step = 0; step < 1000; step++){
+                location = field.freeAdjacentLocation(location, 1);
+            }
+            rows += location.getRow() - 1000;
+            cols += location.getCol() - 1000;
+        }
+        // A free walk of 1000 steps spreads about 27 positions per axis, so the mean of
+        // 200 walkers is within about 2 of the start; a drift shows up far beyond 10.
+        assertTrue(Math.abs((double) rows / walkers) < 10);
+        assertTrue(Math.abs((double) cols / walkers) < 10);
+    }
+}